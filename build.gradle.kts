@@ -1,6 +1,7 @@
 plugins {
     id("java")
     id("io.spring.javaformat") version "0.0.42"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "org.example"
@@ -19,4 +20,9 @@ dependencies {
 
 tasks.test {
     useJUnitPlatform()
-}
\ No newline at end of file
+}
+
+jmh {
+    profilers.add("gc")
+    resultFormat.set("JSON")
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link JavadocSite#lookup(String)} with a mix of names that are and
+ * are not in the index, held either on the heap or in a {@link MappedLookupIndex}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LookupBenchmark {
+
+	private static final String[] SEARCH_INDEX_URLS = {
+			"https://docs.spring.io/spring-framework/docs/6.2.x/javadoc-api/type-search-index.js",
+			"https://docs.jboss.org/hibernate/orm/6.5/javadocs/type-search-index.js" };
+
+	@Param({ "0.8" })
+	double hitRatio;
+
+	@Param({ "heap", "mapped" })
+	String storage;
+
+	private JavadocSite site;
+
+	private String[] names;
+
+	private int index;
+
+	@Setup(Level.Trial)
+	public void buildIndex() throws Exception {
+		HttpCache cache = new HttpCache(Main.CACHE_PATH, null, Duration.ofDays(365 * 100), Long.MAX_VALUE);
+		LookupTable lookup = new LookupTable();
+		this.site = new JavadocSite(lookup);
+		for (String url : SEARCH_INDEX_URLS) {
+			this.site.addUrlViaSearchElements(new KnownPackages(), cache.get(url), "{url-example-javadoc}/");
+		}
+		if (this.storage.equals("mapped")) {
+			Path file = Files.createTempFile("javadoc-lookup", ".index");
+			file.toFile().deleteOnExit();
+			MappedLookupIndex.write(file, lookup);
+			this.site = new JavadocSite(MappedLookupIndex.open(file));
+		}
+		List<String> keys = new ArrayList<>();
+		lookup.forEachKey((key, ids) -> keys.add(key));
+		Collections.sort(keys);
+		Random random = new Random(0);
+		this.names = new String[4096];
+		for (int i = 0; i < this.names.length; i++) {
+			this.names[i] = (random.nextDouble() < this.hitRatio) ? keys.get(random.nextInt(keys.size()))
+					: "MyMissing" + keys.get(random.nextInt(keys.size()));
+		}
+	}
+
+	@Benchmark
+	public List<String> lookup() {
+		String name = this.names[this.index];
+		this.index = (this.index + 1) & (this.names.length - 1);
+		return this.site.lookup(name);
+	}
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for indexing remote javadoc using the responses that are already in the
+ * {@code ./cache} directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RemoteIndexBenchmark {
+
+	@Param({ "https://docs.jboss.org/hibernate/orm/6.5/javadocs/type-search-index.js",
+			"https://docs.spring.io/spring-framework/docs/6.2.x/javadoc-api/type-search-index.js",
+			"https://javadoc.io/static/com.google.code.gson/gson/2.11.0/type-search-index.js" })
+	String searchIndexUrl;
+
+	@Param({ "https://javadoc.io/static/org.testcontainers/testcontainers/1.19.8/allclasses-frame.html" })
+	String allClassesFrameUrl;
+
+	private HttpCache.Entry searchIndex;
+
+	private HttpCache.Entry allClassesFrame;
+
+	private final KnownPackages knownPackages = new KnownPackages();
+
+	@Setup(Level.Trial)
+	public void loadCacheEntries() throws IOException {
+		this.knownPackages.add("org.springframework");
+		this.knownPackages.add("org.hibernate");
+		HttpCache cache = new HttpCache(Main.CACHE_PATH, null, Duration.ofDays(365 * 100), Long.MAX_VALUE);
+		this.searchIndex = getSuccessful(cache, this.searchIndexUrl);
+		this.allClassesFrame = getSuccessful(cache, this.allClassesFrameUrl);
+	}
+
+	private HttpCache.Entry getSuccessful(HttpCache cache, String url) throws IOException {
+		HttpCache.Entry entry = cache.get(url);
+		if (entry == null || !entry.isSuccessful()) {
+			throw new IllegalStateException("No cached response for " + url);
+		}
+		return entry;
+	}
+
+	@Benchmark
+	public JavadocSite addUrlViaSearchElements() throws Exception {
+		JavadocSite site = new JavadocSite(new LookupTable());
+		site.addUrlViaSearchElements(this.knownPackages, this.searchIndex, "{url-example-javadoc}/");
+		return site;
+	}
+
+	@Benchmark
+	public JavadocSite addUrlViaAllClassesFrame() throws Exception {
+		JavadocSite site = new JavadocSite(new LookupTable());
+		site.addUrlViaAllClassesFrame(this.knownPackages, this.allClassesFrameUrl,
+				this.allClassesFrame, "{url-example-javadoc}/");
+		return site;
+	}
+
+}
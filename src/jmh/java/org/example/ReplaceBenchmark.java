@@ -0,0 +1,102 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link Main#replace(String)} over generated documents that resemble
+ * the Spring Boot reference documentation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReplaceBenchmark {
+
+	private static final String[] SENTENCES = {
+			"Spring Boot auto-configures an `ObjectMapper` when Jackson is on the classpath.",
+			"You can declare a `@Bean` of type `RestClient` to take complete control.",
+			"See xref:api:java/org/springframework/boot/web/client/RestTemplateBuilder.html[`RestTemplateBuilder`] for details.",
+			"Annotate the class with xref:api:java/org/springframework/boot/context/properties/ConfigurationProperties.html[`@ConfigurationProperties`].",
+			"Values can be bound to a `Map` or a `List` using the `Binder`.",
+			"The `spring.jackson.*` properties are applied to the `Jackson2ObjectMapperBuilder`.",
+			"Set `server.port` in `application.properties` to change the port.",
+			"Use `@ConditionalOnMissingBean` together with `@Configuration` classes.",
+			"Health information is collected from all `HealthIndicator` beans in the `ApplicationContext`.",
+			"A `MyProperties` class is shown in the following example:" };
+
+	private static final String LISTING = """
+			[source,java]
+			----
+			include-code::MyApplication[]
+			----
+			""";
+
+	@Param({ "10", "100", "1000" })
+	int paragraphs;
+
+	private Main main;
+
+	private String document;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		HttpCache cache = new HttpCache(Main.CACHE_PATH, null, Duration.ofDays(365 * 100), Long.MAX_VALUE);
+		JavadocSite site = new JavadocSite(new LookupTable());
+		site.addUrlViaSearchElements(new KnownPackages(),
+				cache.get("https://docs.spring.io/spring-framework/docs/6.2.x/javadoc-api/type-search-index.js"), "");
+		this.main = new Main(site, 1);
+		Random random = new Random(0);
+		StringBuilder document = new StringBuilder("= Generated Reference\n\n");
+		for (int i = 0; i < this.paragraphs; i++) {
+			document.append("[[generated.section-").append(i).append("]]\n");
+			document.append("== Section ").append(i).append("\n\n");
+			for (int j = 0; j < 5; j++) {
+				document.append(SENTENCES[random.nextInt(SENTENCES.length)]).append(' ');
+			}
+			document.append("\n\n");
+			if (i % 4 == 0) {
+				document.append(LISTING).append('\n');
+			}
+		}
+		this.document = document.toString();
+	}
+
+	@Benchmark
+	public String replace() {
+		return this.main.replace(this.document);
+	}
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for indexing a local javadoc site. The site is a synthetic tree that
+ * contains class pages as well as the package and index pages that are rejected, along
+ * with a {@code type-search-index.js} describing the same classes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SiteIndexBenchmark {
+
+	@Param({ "1000", "20000" })
+	int pages;
+
+	private Path site;
+
+	@Setup(Level.Trial)
+	public void createSite() throws IOException {
+		this.site = Files.createTempDirectory("javadoc-site");
+		Files.createFile(this.site.resolve("index-all.html"));
+		int packages = Math.max(1, this.pages / 50);
+		StringBuilder typeSearchIndex = new StringBuilder("typeSearchIndex = [");
+		for (int i = 0; i < this.pages; i++) {
+			Path packagePath = this.site.resolve("org/example/module" + (i % 7) + "/package" + (i % packages));
+			if (!Files.exists(packagePath)) {
+				Files.createDirectories(packagePath);
+				Files.createFile(packagePath.resolve("package-summary.html"));
+				Files.createFile(packagePath.resolve("package-tree.html"));
+			}
+			String name = (i % 5 != 0) ? "Example" + i : "Example" + i + ".Nested";
+			Files.createFile(packagePath.resolve(name + ".html"));
+			typeSearchIndex.append((i > 0) ? "," : "")
+				.append("{\"p\":\"")
+				.append(this.site.relativize(packagePath).toString().replace('/', '.'))
+				.append("\",\"l\":\"")
+				.append(name)
+				.append("\"}");
+		}
+		Files.writeString(this.site.resolve("type-search-index.js"), typeSearchIndex.append("];"));
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteSite() throws IOException {
+		try (Stream<Path> paths = Files.walk(this.site)) {
+			for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+				Files.delete(path);
+			}
+		}
+	}
+
+	@Benchmark
+	public JavadocSite addSite() {
+		return new JavadocSite(List.of(), this.site, null);
+	}
+
+	@Benchmark
+	public JavadocSite addSiteFromTypeSearchIndex() {
+		return new JavadocSite(List.of(), this.site, null, true);
+	}
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+/**
+ * Linear time reader for the links in javadoc {@code allclasses-frame.html} files. Each
+ * link is found as the following regular expressions would find it, with the second
+ * applied to each list item and the third to the link text:
+ * <pre class="code">
+ * &lt;li&gt;(.+?)&lt;\/li&gt;
+ * &lt;a href=["'](.+?)["'].*?&gt;(.*)&lt;\/a&gt;
+ * &lt;.*?&gt;(.+)&lt;\/
+ * </pre>
+ * Only the first candidate of the last two can ever match, since every later candidate
+ * has to satisfy the same conditions further along. The list items are found using
+ * forward-only searches for the next {@code </li>} and line terminator.
+ */
+final class AllClassesFrame {
+
+	private AllClassesFrame() {
+	}
+
+	/**
+	 * Read the given {@code allclasses-frame.html} content, calling the consumer for each
+	 * link that is found.
+	 * @param body the content
+	 * @param consumer the consumer called with each link's {@code href} and text
+	 */
+	static void read(String body, LinkConsumer consumer) {
+		int length = body.length();
+		int nextItemEnd = -1;
+		int nextLineTerminator = -1;
+		int position = 0;
+		int start;
+		while ((start = body.indexOf("<li>", position)) != -1) {
+			int itemStart = start + 4;
+			if (nextItemEnd < itemStart + 1) {
+				nextItemEnd = body.indexOf("</li>", itemStart + 1);
+				nextItemEnd = (nextItemEnd != -1) ? nextItemEnd : length;
+			}
+			if (nextLineTerminator < itemStart) {
+				nextLineTerminator = itemStart;
+				while (nextLineTerminator < length && !isLineTerminator(body.charAt(nextLineTerminator))) {
+					nextLineTerminator++;
+				}
+			}
+			if (nextItemEnd < nextLineTerminator) {
+				readListItem(body, itemStart, nextItemEnd, consumer);
+				position = nextItemEnd + 5;
+			}
+			else {
+				position = start + 1;
+			}
+		}
+	}
+
+	private static void readListItem(String body, int start, int end, LinkConsumer consumer) {
+		int anchor = indexOf(body, "<a href=", start, end);
+		while (anchor != -1 && (anchor + 8 >= end || !isQuote(body.charAt(anchor + 8)))) {
+			anchor = indexOf(body, "<a href=", anchor + 1, end);
+		}
+		if (anchor == -1) {
+			return;
+		}
+		int hrefEnd = anchor + 10;
+		while (hrefEnd < end && !isQuote(body.charAt(hrefEnd))) {
+			hrefEnd++;
+		}
+		int tagEnd = indexOf(body, ">", hrefEnd + 1, end);
+		if (tagEnd == -1) {
+			return;
+		}
+		int textEnd = lastIndexOf(body, "</a>", tagEnd + 1, end);
+		if (textEnd == -1) {
+			return;
+		}
+		consumer.accept(body.substring(anchor + 9, hrefEnd), innerText(body, tagEnd + 1, textEnd));
+	}
+
+	private static String innerText(String body, int start, int end) {
+		int tag = indexOf(body, "<", start, end);
+		int tagEnd = (tag != -1) ? indexOf(body, ">", tag + 1, end) : -1;
+		int closingTag = (tagEnd != -1) ? lastIndexOf(body, "</", tagEnd + 2, end) : -1;
+		return (closingTag != -1) ? body.substring(tagEnd + 1, closingTag) : body.substring(start, end);
+	}
+
+	private static int indexOf(String body, String str, int from, int to) {
+		for (int i = from; i + str.length() <= to; i++) {
+			if (body.startsWith(str, i)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static int lastIndexOf(String body, String str, int from, int to) {
+		for (int i = to - str.length(); i >= from; i--) {
+			if (body.startsWith(str, i)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static boolean isQuote(char ch) {
+		return ch == '"' || ch == '\'';
+	}
+
+	private static boolean isLineTerminator(char ch) {
+		return ch == '\n' || ch == '\r' || ch == '\u0085' || ch == '\u2028' || ch == '\u2029';
+	}
+
+	/**
+	 * Consumer called for each link.
+	 */
+	@FunctionalInterface
+	interface LinkConsumer {
+
+		void accept(String href, String text);
+
+	}
+
+}
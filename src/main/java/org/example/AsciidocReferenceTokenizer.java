@@ -0,0 +1,370 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+/**
+ * Linear time tokenizer for the references in asciidoc content that can be migrated. It
+ * finds the same tokens, in the same order, as repeated {@link java.util.regex.Matcher#find()
+ * find} calls using the alternation of the following regular expressions:
+ * <pre class="code">
+ * xref:api:java\/([^\.]+)/(.*?)\.html(#[^\[]+)?\[(.*?)\]
+ * ([\s\n])`([A-Za-z\.@][A-Za-z0-9\.]+)`
+ * </pre>
+ * Rather than backtracking, the xref choices are made directly. The package part ends at
+ * the last {@code /} before the first {@code .} that is followed on the same line by a
+ * {@code .html} with a valid tail. The class part ends at the first such {@code .html}.
+ * Whether each position has a valid {@code .html} ahead of it is computed once, in a
+ * single reverse pass, the first time that an xref is found.
+ * <p>
+ * When the content is not {@link #AsciidocReferenceTokenizer(CharSequence, boolean)
+ * complete}, tokenizing stops at the first position where the result could depend on
+ * content that has not yet been read. That position is available from
+ * {@link #getResumePosition()}.
+ */
+final class AsciidocReferenceTokenizer {
+
+	private static final String XREF_PREFIX = "xref:api:java/";
+
+	private static final int NONE = -1;
+
+	private static final int UNDETERMINED = -2;
+
+	private static final Token UNDETERMINED_TOKEN = new ClassName(-1, -1, null, null);
+
+	private final CharSequence content;
+
+	private final int length;
+
+	private final boolean complete;
+
+	private int position;
+
+	private int resumePosition = -1;
+
+	private int[] validHtml;
+
+	private int dot = -1;
+
+	private int slashScan;
+
+	private int lastValidSlash = NONE;
+
+	/**
+	 * Create a new tokenizer.
+	 * @param content the content to tokenize
+	 * @param complete if the content is complete or if more may follow
+	 */
+	AsciidocReferenceTokenizer(CharSequence content, boolean complete) {
+		this.content = content;
+		this.length = content.length();
+		this.complete = complete;
+	}
+
+	/**
+	 * Return the next token or {@code null} if there are no more tokens that can be
+	 * determined.
+	 * @return the next token or {@code null}
+	 */
+	Token next() {
+		for (int start = this.position; start < this.length; start++) {
+			char ch = this.content.charAt(start);
+			Token token;
+			if (ch == 'x') {
+				token = nextXref(start);
+			}
+			else if (isWhitespace(ch)) {
+				token = nextClassName(start);
+			}
+			else {
+				continue;
+			}
+			if (token == UNDETERMINED_TOKEN) {
+				this.resumePosition = start;
+				this.position = this.length;
+				return null;
+			}
+			if (token != null) {
+				this.position = token.end();
+				return token;
+			}
+		}
+		this.position = this.length;
+		return null;
+	}
+
+	/**
+	 * Return the position up to which the content has been fully tokenized. When the
+	 * content is incomplete, tokenizing should resume from this position once more
+	 * content is available.
+	 * @return the resume position
+	 */
+	int getResumePosition() {
+		return (this.resumePosition != -1) ? this.resumePosition : this.position;
+	}
+
+	private Token nextClassName(int start) {
+		if (start + 1 >= this.length) {
+			return undetermined();
+		}
+		if (this.content.charAt(start + 1) != '`') {
+			return null;
+		}
+		if (start + 2 >= this.length) {
+			return undetermined();
+		}
+		char first = this.content.charAt(start + 2);
+		if (!isLetter(first) && first != '.' && first != '@') {
+			return null;
+		}
+		int end = start + 3;
+		while (end < this.length && isClassNameChar(this.content.charAt(end))) {
+			end++;
+		}
+		if (end >= this.length) {
+			return undetermined();
+		}
+		if (end == start + 3 || this.content.charAt(end) != '`') {
+			return null;
+		}
+		return new ClassName(start, end + 1, String.valueOf(this.content.charAt(start)),
+				this.content.subSequence(start + 2, end).toString());
+	}
+
+	private Token nextXref(int start) {
+		for (int i = 1; i < XREF_PREFIX.length(); i++) {
+			if (start + i >= this.length) {
+				return undetermined();
+			}
+			if (this.content.charAt(start + i) != XREF_PREFIX.charAt(i)) {
+				return null;
+			}
+		}
+		int packageStart = start + XREF_PREFIX.length();
+		if (packageStart >= this.length) {
+			return undetermined();
+		}
+		int dot = firstDot(packageStart);
+		if (dot == this.length && !this.complete) {
+			return undetermined();
+		}
+		int slash = lastValidSlash(dot);
+		if (slash <= packageStart) {
+			return null;
+		}
+		int html = validHtml()[slash + 1];
+		if (html == UNDETERMINED) {
+			return undetermined();
+		}
+		int tail = html + 5;
+		String anchor = null;
+		int textStart = tail + 1;
+		if (this.content.charAt(tail) == '#') {
+			int open = indexOf('[', tail + 1);
+			anchor = this.content.subSequence(tail, open).toString();
+			textStart = open + 1;
+		}
+		int close = indexOf(']', textStart);
+		return new Xref(start, close + 1, this.content.subSequence(packageStart, slash).toString(),
+				this.content.subSequence(slash + 1, html).toString(), anchor,
+				this.content.subSequence(textStart, close).toString());
+	}
+
+	private int firstDot(int from) {
+		if (from > this.dot) {
+			this.dot = from;
+			while (this.dot < this.length && this.content.charAt(this.dot) != '.') {
+				this.dot++;
+			}
+		}
+		return this.dot;
+	}
+
+	/**
+	 * Return the last {@code /} before the given limit that is followed by a valid
+	 * {@code .html}. Limits are never smaller than those of earlier calls, so each
+	 * position is only checked once.
+	 */
+	private int lastValidSlash(int limit) {
+		int[] validHtml = validHtml();
+		for (; this.slashScan < limit; this.slashScan++) {
+			if (this.content.charAt(this.slashScan) == '/' && validHtml[this.slashScan + 1] != NONE) {
+				this.lastValidSlash = this.slashScan;
+			}
+		}
+		return this.lastValidSlash;
+	}
+
+	/**
+	 * Return, for each position, the first {@code .html} at or after it on the same line
+	 * that is followed by an optional anchor and bracketed text, {@link #NONE} or
+	 * {@link #UNDETERMINED}. Computed by a single reverse pass that tracks the next
+	 * {@code [}, {@code ]} and line terminator.
+	 */
+	private int[] validHtml() {
+		if (this.validHtml != null) {
+			return this.validHtml;
+		}
+		int[] validHtml = new int[this.length + 1];
+		validHtml[this.length] = (this.complete) ? NONE : UNDETERMINED;
+		int nextOpen = this.length;
+		int nextOpenTextStatus = NONE;
+		int nextClose = this.length;
+		int nextLineTerminator = this.length;
+		for (int i = this.length - 1; i >= 0; i--) {
+			char ch = this.content.charAt(i);
+			if (isLineTerminator(ch)) {
+				validHtml[i] = NONE;
+			}
+			else if (ch == '.') {
+				int status = htmlStatus(i, nextOpen, nextOpenTextStatus, nextClose, nextLineTerminator);
+				validHtml[i] = (status == NONE) ? validHtml[i + 1] : status;
+			}
+			else {
+				validHtml[i] = validHtml[i + 1];
+			}
+			if (ch == '[') {
+				nextOpen = i;
+				nextOpenTextStatus = textStatus(nextClose, nextLineTerminator);
+			}
+			else if (ch == ']') {
+				nextClose = i;
+			}
+			else if (isLineTerminator(ch)) {
+				nextLineTerminator = i;
+			}
+		}
+		this.validHtml = validHtml;
+		return validHtml;
+	}
+
+	/**
+	 * Return the given position if it starts a {@code .html} followed by a valid tail,
+	 * {@link #NONE} or {@link #UNDETERMINED}. The next positions passed in apply from
+	 * the character after the dot, which is the same as from the character after the
+	 * tail's first character since {@code html} contains none of the characters tracked.
+	 */
+	private int htmlStatus(int dot, int nextOpen, int nextOpenTextStatus, int nextClose, int nextLineTerminator) {
+		for (int i = 1; i < 5; i++) {
+			if (dot + i >= this.length) {
+				return incomplete();
+			}
+			if (this.content.charAt(dot + i) != ".html".charAt(i)) {
+				return NONE;
+			}
+		}
+		int tail = dot + 5;
+		if (tail >= this.length) {
+			return incomplete();
+		}
+		char ch = this.content.charAt(tail);
+		if (ch == '[') {
+			return withStatus(dot, textStatus(nextClose, nextLineTerminator));
+		}
+		if (ch != '#') {
+			return NONE;
+		}
+		if (tail + 1 >= this.length) {
+			return incomplete();
+		}
+		if (this.content.charAt(tail + 1) == '[') {
+			return NONE;
+		}
+		return (nextOpen != this.length) ? withStatus(dot, nextOpenTextStatus) : incomplete();
+	}
+
+	private int textStatus(int nextClose, int nextLineTerminator) {
+		if (nextClose < nextLineTerminator) {
+			return 0;
+		}
+		return (nextLineTerminator != this.length) ? NONE : incomplete();
+	}
+
+	private int withStatus(int position, int status) {
+		return (status < 0) ? status : position;
+	}
+
+	private int incomplete() {
+		return (this.complete) ? NONE : UNDETERMINED;
+	}
+
+	private Token undetermined() {
+		return (this.complete) ? null : UNDETERMINED_TOKEN;
+	}
+
+	private int indexOf(char ch, int from) {
+		int index = from;
+		while (this.content.charAt(index) != ch) {
+			index++;
+		}
+		return index;
+	}
+
+	private static boolean isWhitespace(char ch) {
+		return ch == ' ' || ch == '\t' || ch == '\n' || ch == '\u000B' || ch == '\f' || ch == '\r';
+	}
+
+	private static boolean isLineTerminator(char ch) {
+		return ch == '\n' || ch == '\r' || ch == '\u0085' || ch == '\u2028' || ch == '\u2029';
+	}
+
+	private static boolean isLetter(char ch) {
+		return (ch >= 'A' && ch <= 'Z') || (ch >= 'a' && ch <= 'z');
+	}
+
+	private static boolean isClassNameChar(char ch) {
+		return isLetter(ch) || (ch >= '0' && ch <= '9') || ch == '.';
+	}
+
+	/**
+	 * A token found by the tokenizer.
+	 */
+	sealed interface Token permits Xref, ClassName {
+
+		int start();
+
+		int end();
+
+	}
+
+	/**
+	 * An {@code xref:api:java/...} reference.
+	 *
+	 * @param start the start of the token
+	 * @param end the end of the token
+	 * @param packagePath the package path with {@code /} separators
+	 * @param className the class name
+	 * @param anchor the anchor, including the leading {@code #}, or {@code null}
+	 * @param text the link text
+	 */
+	record Xref(int start, int end, String packagePath, String className, String anchor,
+			String text) implements Token {
+
+	}
+
+	/**
+	 * A backticked class name candidate.
+	 *
+	 * @param start the start of the token
+	 * @param end the end of the token
+	 * @param prefix the whitespace that precedes the name
+	 * @param name the name
+	 */
+	record ClassName(int start, int end, String prefix, String name) implements Token {
+
+	}
+
+}
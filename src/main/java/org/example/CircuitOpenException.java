@@ -16,6 +16,13 @@
 
 package org.example;
 
-public record TypeSearchElement(String p, String l, String m, String u, String url) {
+/**
+ * Thrown when a request is not made because the circuit breaker for its host is open.
+ */
+class CircuitOpenException extends RuntimeException {
+
+	CircuitOpenException(String host) {
+		super("Circuit open for " + host);
+	}
 
 }
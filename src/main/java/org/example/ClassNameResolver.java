@@ -0,0 +1,210 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Memoizing resolver for backticked class name candidates, shared by all files and
+ * threads. The complete decision for each distinct token is computed once. Unknown and
+ * ambiguous names are collected so that they can be reported once at the end of a run
+ * rather than for every occurrence, unless the resolver serves requests that have no
+ * end of run, in which case they would only accumulate. The {@link Metrics} count each
+ * occurrence by {@link Kind}.
+ */
+class ClassNameResolver {
+
+	private final Function<String, Resolution> resolver;
+
+	private final boolean recordNames;
+
+	private final Map<String, Resolution> resolutions = new ConcurrentHashMap<>();
+
+	private final Map<String, LongAdder> unknown = new ConcurrentHashMap<>();
+
+	private final Map<String, List<String>> ambiguous = new ConcurrentHashMap<>();
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder misses = new LongAdder();
+
+	private final LongAdder[] lookups = new LongAdder[Kind.values().length];
+
+	ClassNameResolver(Function<String, Resolution> resolver) {
+		this(resolver, true);
+	}
+
+	ClassNameResolver(Function<String, Resolution> resolver, boolean recordNames) {
+		this.resolver = resolver;
+		this.recordNames = recordNames;
+		for (Kind kind : Kind.values()) {
+			this.lookups[kind.ordinal()] = Metrics.get().counter("lookup." + kind.name().toLowerCase(Locale.ROOT));
+		}
+	}
+
+	/**
+	 * Resolve the given token, recording it if it is unknown or ambiguous and names are
+	 * recorded.
+	 * @param token the token
+	 * @return the resolution
+	 */
+	Resolution resolve(String token) {
+		Resolution resolution = this.resolutions.get(token);
+		if (resolution != null) {
+			this.hits.increment();
+		}
+		else {
+			this.misses.increment();
+			resolution = this.resolutions.computeIfAbsent(token, this.resolver);
+		}
+		this.lookups[resolution.kind().ordinal()].increment();
+		if (!this.recordNames) {
+			return resolution;
+		}
+		if (resolution.kind() == Kind.UNKNOWN && !resolution.name().startsWith("My")) {
+			this.unknown.computeIfAbsent(resolution.name(), (name) -> new LongAdder()).increment();
+		}
+		else if (resolution.kind() == Kind.AMBIGUOUS) {
+			this.ambiguous.putIfAbsent(resolution.name(), resolution.targets());
+		}
+		return resolution;
+	}
+
+	/**
+	 * Return if any of the given names have been found to be ambiguous.
+	 * @param names the names to check
+	 * @return if any name is ambiguous
+	 */
+	boolean isAnyAmbiguous(Collection<String> names) {
+		for (String name : names) {
+			if (this.ambiguous.containsKey(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Return the unknown names that have been found, with their number of occurrences.
+	 * @return the unknown names
+	 */
+	Map<String, Long> getUnknownNames() {
+		Map<String, Long> unknown = new TreeMap<>();
+		this.unknown.forEach((name, count) -> unknown.put(name, count.sum()));
+		return unknown;
+	}
+
+	/**
+	 * Return the ambiguous names that have been found, with their targets.
+	 * @return the ambiguous names
+	 */
+	Map<String, List<String>> getAmbiguousNames() {
+		return new TreeMap<>(this.ambiguous);
+	}
+
+	/**
+	 * Log the cache statistics and a summary of the unknown names.
+	 */
+	void logSummary() {
+		long hits = this.hits.sum();
+		long total = hits + this.misses.sum();
+		Log.info("Resolved %d class name candidates, %d distinct, %.1f%% cache hit rate".formatted(total,
+				this.resolutions.size(), (total != 0) ? hits * 100.0 / total : 0.0));
+		if (!this.unknown.isEmpty()) {
+			Log.info("No idea about " + this.unknown.size() + " name(s):");
+			new TreeMap<>(this.unknown).forEach((name, count) -> Log.info("  " + name + " (" + count + ")"));
+		}
+	}
+
+	/**
+	 * Throw an exception if any ambiguous names were found.
+	 */
+	void assertNoAmbiguousNames() {
+		if (!this.ambiguous.isEmpty()) {
+			StringBuilder message = new StringBuilder("Fix the ambiguous names:");
+			new TreeMap<>(this.ambiguous)
+				.forEach((name, targets) -> message.append("%n  %s %s".formatted(name, targets)));
+			throw new IllegalStateException(message.toString());
+		}
+	}
+
+	/**
+	 * The kind of resolution.
+	 */
+	enum Kind {
+
+		/**
+		 * The token does not look like a class name.
+		 */
+		NOT_A_CLASS,
+
+		/**
+		 * The name is not known to the javadoc site.
+		 */
+		UNKNOWN,
+
+		/**
+		 * The name matches more than one class.
+		 */
+		AMBIGUOUS,
+
+		/**
+		 * The name matches a single class.
+		 */
+		RESOLVED
+
+	}
+
+	/**
+	 * The resolution of a token.
+	 *
+	 * @param kind the kind of resolution
+	 * @param name the name that was looked up or {@code null}
+	 * @param targets the javadoc targets or {@code null}
+	 * @param replacement the {@code javadoc:} macro to use or {@code null}
+	 */
+	record Resolution(Kind kind, String name, List<String> targets, String replacement) {
+
+		static final Resolution NOT_A_CLASS = new Resolution(Kind.NOT_A_CLASS, null, null, null);
+
+		static Resolution unknown(String name) {
+			return new Resolution(Kind.UNKNOWN, name, null, null);
+		}
+
+		static Resolution ambiguous(String name, List<String> targets) {
+			return new Resolution(Kind.AMBIGUOUS, name, List.copyOf(targets), null);
+		}
+
+		static Resolution resolved(String name, String target, boolean annotation) {
+			return new Resolution(Kind.RESOLVED, name, List.of(target),
+					"javadoc:%s[%s]".formatted(target, (!annotation) ? "" : "format=annotation"));
+		}
+
+		String location() {
+			return this.targets.get(0);
+		}
+
+	}
+
+}
@@ -0,0 +1,377 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Disk cache for HTTP responses. Entries are stored under a SHA-256 hash of their URL
+ * as a gzip compressed body with a properties file holding the status code and any
+ * validators that can be used for conditional requests. Unsuccessful responses are
+ * stored as negative entries that expire after a configurable time. Entries written by
+ * earlier versions directly under the cache root are still read but never written.
+ * <p>
+ * The cache is trimmed to its maximum size by evicting the least recently used bodies.
+ * Bodies that have been returned by this instance are never evicted by it, as they may
+ * still be read, so they are only trimmed by a later run.
+ */
+class HttpCache {
+
+	private static final String LEGACY_BAD_STATUS_CODE_MARKER = "BadStatusCodeException__";
+
+	private final Path root;
+
+	private final Path entries;
+
+	private final Duration maxAge;
+
+	private final Duration negativeTtl;
+
+	private final long maxSize;
+
+	private final AtomicLong size = new AtomicLong(-1);
+
+	private final Set<Path> inUse = new HashSet<>();
+
+	HttpCache(Path root, Duration maxAge, Duration negativeTtl, long maxSize) {
+		this.root = root;
+		this.entries = root.resolve("http");
+		this.maxAge = maxAge;
+		this.negativeTtl = negativeTtl;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Return the cached entry for the given URL or {@code null}. An entry whose body has
+	 * been deleted is treated as a miss.
+	 * @param url the URL
+	 * @return the entry or {@code null}
+	 * @throws IOException on IO error
+	 */
+	Entry get(String url) throws IOException {
+		String key = key(url);
+		Path metadata = this.entries.resolve(key + ".properties");
+		if (Files.exists(metadata)) {
+			Properties properties = new Properties();
+			try (Reader reader = Files.newBufferedReader(metadata)) {
+				properties.load(reader);
+			}
+			int status = Integer.parseInt(properties.getProperty("status"));
+			Path body = (status != 200) ? null : this.entries.resolve(key + ".gz");
+			if (body != null && !use(body)) {
+				return getLegacy(url);
+			}
+			return new Entry(url, status, properties.getProperty("etag"), properties.getProperty("last-modified"),
+					Long.parseLong(properties.getProperty("stored")), body, true);
+		}
+		return getLegacy(url);
+	}
+
+	/**
+	 * Mark the given body as in use so that it is not evicted, returning {@code false}
+	 * if it has already been deleted. The mark is made while holding the lock that
+	 * {@link #trim()} holds, so a body that still exists afterwards cannot be evicted.
+	 */
+	private boolean use(Path body) throws IOException {
+		synchronized (this) {
+			this.inUse.add(body);
+		}
+		try {
+			Files.setLastModifiedTime(body, FileTime.fromMillis(System.currentTimeMillis()));
+			return true;
+		}
+		catch (NoSuchFileException ex) {
+			synchronized (this) {
+				this.inUse.remove(body);
+			}
+			return false;
+		}
+	}
+
+	private Entry getLegacy(String url) throws IOException {
+		Path legacy = this.root.resolve(url.replace(":", "").replace("/", "_").replace(".", "_"));
+		if (!Files.isRegularFile(legacy)) {
+			return null;
+		}
+		long stored = Files.getLastModifiedTime(legacy).toMillis();
+		byte[] marker = LEGACY_BAD_STATUS_CODE_MARKER.getBytes(StandardCharsets.UTF_8);
+		try (InputStream input = Files.newInputStream(legacy)) {
+			if (Arrays.equals(input.readNBytes(marker.length), marker)) {
+				int status = Integer.parseInt(new String(input.readAllBytes(), StandardCharsets.UTF_8).trim());
+				return new Entry(url, status, null, null, stored, null, false);
+			}
+		}
+		return new Entry(url, 200, null, null, stored, legacy, false);
+	}
+
+	/**
+	 * Return if the given entry can be used without contacting the server.
+	 * @param entry the entry to check
+	 * @return if the entry is fresh
+	 */
+	boolean isFresh(Entry entry) {
+		Duration age = Duration.ofMillis(System.currentTimeMillis() - entry.stored());
+		if (!entry.isSuccessful()) {
+			return age.compareTo(this.negativeTtl) < 0;
+		}
+		return this.maxAge == null || age.compareTo(this.maxAge) < 0;
+	}
+
+	/**
+	 * Store a successful response, moving the given uncompressed body into the cache.
+	 * @param url the URL
+	 * @param download the downloaded body, deleted once stored
+	 * @param etag the {@code ETag} header value or {@code null}
+	 * @param lastModified the {@code Last-Modified} header value or {@code null}
+	 * @return the stored entry
+	 * @throws IOException on IO error
+	 */
+	Entry store(String url, Path download, String etag, String lastModified) throws IOException {
+		String key = key(url);
+		Files.createDirectories(this.entries);
+		Path body = this.entries.resolve(key + ".gz");
+		Path compressed = Files.createTempFile(this.entries, key, ".tmp");
+		try {
+			try (OutputStream output = new GZIPOutputStream(Files.newOutputStream(compressed))) {
+				Files.copy(download, output);
+			}
+			long previous = sizeOf(body);
+			synchronized (this) {
+				this.inUse.add(body);
+			}
+			Files.move(compressed, body, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			adjustSize(Files.size(body) - previous);
+		}
+		finally {
+			Files.deleteIfExists(compressed);
+			Files.deleteIfExists(download);
+		}
+		Entry entry = new Entry(url, 200, etag, lastModified, System.currentTimeMillis(), body, true);
+		writeMetadata(key, entry);
+		trim();
+		return entry;
+	}
+
+	/**
+	 * Store a negative entry for an unsuccessful response.
+	 * @param url the URL
+	 * @param status the status code
+	 * @return the stored entry
+	 * @throws IOException on IO error
+	 */
+	Entry storeNegative(String url, int status) throws IOException {
+		String key = key(url);
+		Files.createDirectories(this.entries);
+		Path body = this.entries.resolve(key + ".gz");
+		long previous = sizeOf(body);
+		Files.deleteIfExists(body);
+		adjustSize(-previous);
+		Entry entry = new Entry(url, status, null, null, System.currentTimeMillis(), null, true);
+		writeMetadata(key, entry);
+		return entry;
+	}
+
+	/**
+	 * Mark the given entry as revalidated following a {@code 304} response.
+	 * @param entry the entry
+	 * @return the refreshed entry
+	 * @throws IOException on IO error
+	 */
+	Entry revalidated(Entry entry) throws IOException {
+		if (!entry.compressed()) {
+			Path copy = Files.createTempFile("javadoc", ".download");
+			Files.copy(entry.body(), copy, StandardCopyOption.REPLACE_EXISTING);
+			return store(entry.url(), copy, entry.etag(), entry.lastModified());
+		}
+		Entry refreshed = new Entry(entry.url(), entry.status(), entry.etag(), entry.lastModified(),
+				System.currentTimeMillis(), entry.body(), entry.compressed());
+		writeMetadata(key(entry.url()), refreshed);
+		return refreshed;
+	}
+
+	private void writeMetadata(String key, Entry entry) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty("url", entry.url());
+		properties.setProperty("status", Integer.toString(entry.status()));
+		properties.setProperty("stored", Long.toString(entry.stored()));
+		if (entry.etag() != null) {
+			properties.setProperty("etag", entry.etag());
+		}
+		if (entry.lastModified() != null) {
+			properties.setProperty("last-modified", entry.lastModified());
+		}
+		Path metadata = this.entries.resolve(key + ".properties");
+		Path temp = Files.createTempFile(this.entries, key, ".tmp");
+		try {
+			try (Writer writer = Files.newBufferedWriter(temp)) {
+				properties.store(writer, null);
+			}
+			Files.move(temp, metadata, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private void trim() throws IOException {
+		if (this.size.get() <= this.maxSize) {
+			return;
+		}
+		synchronized (this) {
+			List<Path> bodies = new ArrayList<>();
+			try (Stream<Path> files = Files.list(this.entries)) {
+				files.filter((file) -> file.toString().endsWith(".gz")).forEach(bodies::add);
+			}
+			bodies.sort(Comparator.comparing(this::lastAccessed));
+			long total = 0;
+			for (Path body : bodies) {
+				total += sizeOf(body);
+			}
+			for (Path body : bodies) {
+				if (total <= this.maxSize) {
+					break;
+				}
+				if (this.inUse.contains(body)) {
+					continue;
+				}
+				String name = body.getFileName().toString();
+				String key = name.substring(0, name.length() - ".gz".length());
+				total -= sizeOf(body);
+				Files.deleteIfExists(this.entries.resolve(key + ".properties"));
+				Files.deleteIfExists(body);
+			}
+			this.size.set(total);
+		}
+	}
+
+	/**
+	 * Return the total size of the cached bodies.
+	 * @return the size in bytes
+	 * @throws IOException on IO error
+	 */
+	long size() throws IOException {
+		adjustSize(0);
+		return this.size.get();
+	}
+
+	/**
+	 * Apply the given change to the total size, which is calculated from the bodies on
+	 * disk the first time and so must be called after the change has been made.
+	 */
+	private void adjustSize(long delta) throws IOException {
+		if (this.size.get() == -1) {
+			synchronized (this) {
+				if (this.size.get() == -1) {
+					long total = 0;
+					if (Files.exists(this.entries)) {
+						try (Stream<Path> files = Files.list(this.entries)) {
+							total = files.filter((file) -> file.toString().endsWith(".gz"))
+								.mapToLong(this::sizeOf)
+								.sum();
+						}
+					}
+					this.size.set(total);
+					return;
+				}
+			}
+		}
+		this.size.addAndGet(delta);
+	}
+
+	private FileTime lastAccessed(Path path) {
+		try {
+			return Files.getLastModifiedTime(path);
+		}
+		catch (IOException ex) {
+			return FileTime.fromMillis(0);
+		}
+	}
+
+	private long sizeOf(Path path) {
+		try {
+			return Files.size(path);
+		}
+		catch (NoSuchFileException ex) {
+			return 0;
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	private static String key(String url) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return HexFormat.of().formatHex(digest.digest(url.getBytes(StandardCharsets.UTF_8)));
+		}
+		catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * A cached response.
+	 *
+	 * @param url the URL
+	 * @param status the status code
+	 * @param etag the {@code ETag} header value or {@code null}
+	 * @param lastModified the {@code Last-Modified} header value or {@code null}
+	 * @param stored the time that the entry was stored or last revalidated
+	 * @param body the body or {@code null} for a negative entry
+	 * @param compressed if the body is compressed
+	 */
+	record Entry(String url, int status, String etag, String lastModified, long stored, Path body,
+			boolean compressed) {
+
+		boolean isSuccessful() {
+			return this.status == 200;
+		}
+
+		InputStream open() throws IOException {
+			InputStream input = Files.newInputStream(this.body);
+			return (this.compressed) ? new GZIPInputStream(input, 64 * 1024) : input;
+		}
+
+	}
+
+}
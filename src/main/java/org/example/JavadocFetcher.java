@@ -0,0 +1,416 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpClient.Redirect;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Fetches remote javadoc resources into an {@link HttpCache} using asynchronous requests
+ * with a global and a per-host concurrency limit. Cache use, latency and bytes read are
+ * recorded in the {@link Metrics}.
+ * <p>
+ * Requests that time out, fail with an IO error or receive a {@code 5xx} or {@code 429}
+ * response are retried with exponential backoff according to the {@link Policy}. Only
+ * other error responses are cached as negative entries. Each host has a circuit breaker
+ * that fails requests fast once it has seen too many consecutive transient failures,
+ * letting a single trial request through after a while to check if the host has
+ * recovered. A stale cache entry is used when a transient failure prevents it from being
+ * revalidated.
+ */
+class JavadocFetcher {
+
+	private final HttpClient httpClient;
+
+	private final HttpCache cache;
+
+	private final Policy policy;
+
+	private final ConcurrencyLimit globalLimit;
+
+	private final int concurrencyPerHost;
+
+	private final Map<String, ConcurrencyLimit> hostLimits = new ConcurrentHashMap<>();
+
+	private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+	private final Map<String, CompletableFuture<HttpCache.Entry>> inFlight = new ConcurrentHashMap<>();
+
+	JavadocFetcher(HttpCache cache, int concurrency, int concurrencyPerHost) {
+		this(cache, concurrency, concurrencyPerHost, Policy.DEFAULT);
+	}
+
+	JavadocFetcher(HttpCache cache, int concurrency, int concurrencyPerHost, Policy policy) {
+		this.httpClient = HttpClient.newBuilder()
+			.followRedirects(Redirect.ALWAYS)
+			.connectTimeout(policy.connectTimeout())
+			.build();
+		this.cache = cache;
+		this.policy = policy;
+		this.globalLimit = new ConcurrencyLimit(concurrency);
+		this.concurrencyPerHost = concurrencyPerHost;
+	}
+
+	/**
+	 * Fetch the given URL, returning the cache entry that holds its body. The body is
+	 * streamed to disk rather than being held in memory. Stale entries are revalidated
+	 * using a conditional request when possible.
+	 * @param url the URL to fetch
+	 * @return a future to the cached entry
+	 */
+	CompletableFuture<HttpCache.Entry> get(String url) {
+		return this.inFlight.computeIfAbsent(url, this::fetch);
+	}
+
+	private CompletableFuture<HttpCache.Entry> fetch(String url) {
+		try {
+			URI uri = new URI(url);
+			HttpCache.Entry cached = this.cache.get(url);
+			if (cached != null && this.cache.isFresh(cached)) {
+				if (!cached.isSuccessful()) {
+					Metrics.get().increment("fetch.cache.negative");
+					throw new BadStatusCodeException();
+				}
+				Metrics.get().increment("fetch.cache.hit");
+				Log.debug("using cache for " + url);
+				return CompletableFuture.completedFuture(cached);
+			}
+			Metrics.get().increment("fetch.cache.miss");
+			HttpCache.Entry revalidate = (cached != null && cached.isSuccessful()) ? cached : null;
+			return attempt(url, uri, revalidate, 0).exceptionallyCompose((ex) -> useStale(url, revalidate, ex));
+		}
+		catch (Exception ex) {
+			return CompletableFuture.failedFuture(ex);
+		}
+	}
+
+	/**
+	 * Make a single attempt at fetching the given URL, scheduling another attempt after
+	 * a backoff delay if it fails with a transient error. The concurrency limits are
+	 * only held while a request is in progress, not while waiting to retry.
+	 */
+	private CompletableFuture<HttpCache.Entry> attempt(String url, URI uri, HttpCache.Entry revalidate,
+			int attempt) {
+		String host = uri.getHost();
+		CircuitBreaker circuitBreaker = this.circuitBreakers.computeIfAbsent(host,
+				(key) -> new CircuitBreaker(key, this.policy));
+		if (!circuitBreaker.allowRequest()) {
+			Metrics.get().increment("fetch.circuit-open." + host);
+			return CompletableFuture.failedFuture(new CircuitOpenException(host));
+		}
+		ConcurrencyLimit hostLimit = this.hostLimits.computeIfAbsent(host,
+				(key) -> new ConcurrencyLimit(this.concurrencyPerHost));
+		return hostLimit.submit(() -> this.globalLimit.submit(() -> send(url, uri, revalidate)))
+			.handle((entry, ex) -> {
+				Throwable failure = unwrap(ex);
+				if (!isTransient(failure)) {
+					circuitBreaker.recordSuccess();
+					return (failure != null) ? CompletableFuture.<HttpCache.Entry>failedFuture(failure)
+							: CompletableFuture.completedFuture(entry);
+				}
+				circuitBreaker.recordFailure();
+				Metrics.get().increment("fetch.errors." + host);
+				if (attempt >= this.policy.maxRetries() || circuitBreaker.isOpen()) {
+					return CompletableFuture.<HttpCache.Entry>failedFuture(failure);
+				}
+				long delay = backoff(attempt, failure);
+				Log.debug("retrying " + uri + " in " + delay + "ms after " + failure);
+				Metrics.get().increment("fetch.retries." + host);
+				return CompletableFuture
+					.supplyAsync(() -> attempt(url, uri, revalidate, attempt + 1),
+							CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS))
+					.thenCompose(Function.identity());
+			})
+			.thenCompose(Function.identity());
+	}
+
+	private boolean isTransient(Throwable failure) {
+		return failure instanceof TransientFetchException || failure instanceof IOException;
+	}
+
+	/**
+	 * Return the delay before the next attempt. The exponential delay has random jitter
+	 * so that retries of requests that failed together are spread out, and a longer
+	 * {@code Retry-After} delay from the server is respected up to the maximum.
+	 */
+	private long backoff(int attempt, Throwable failure) {
+		long max = this.policy.maxBackoff().toMillis();
+		long exponential = Math.min(max, this.policy.initialBackoff().toMillis() << Math.min(attempt, 30));
+		long delay = exponential / 2 + ThreadLocalRandom.current().nextLong(exponential / 2 + 1);
+		if (failure instanceof TransientFetchException transientFailure && transientFailure.getRetryAfter() != null) {
+			delay = Math.max(delay, Math.min(max, transientFailure.getRetryAfter().toMillis()));
+		}
+		return delay;
+	}
+
+	private CompletableFuture<HttpCache.Entry> useStale(String url, HttpCache.Entry stale, Throwable ex) {
+		Throwable failure = unwrap(ex);
+		if (stale == null || !(isTransient(failure) || failure instanceof CircuitOpenException)) {
+			return CompletableFuture.failedFuture(failure);
+		}
+		Log.warn("Using stale cache for " + url + " after " + failure);
+		Metrics.get().increment("fetch.stale");
+		return CompletableFuture.completedFuture(stale);
+	}
+
+	private CompletableFuture<HttpCache.Entry> send(String url, URI uri, HttpCache.Entry revalidate)
+			throws IOException {
+		HttpRequest.Builder request = HttpRequest.newBuilder(uri).timeout(this.policy.requestTimeout());
+		if (revalidate != null && revalidate.etag() != null) {
+			request.header("If-None-Match", revalidate.etag());
+		}
+		if (revalidate != null && revalidate.lastModified() != null) {
+			request.header("If-Modified-Since", revalidate.lastModified());
+		}
+		Log.debug(((revalidate != null) ? "revalidating " : "getting ") + uri);
+		Path download = Files.createTempFile("javadoc", ".download");
+		BodyHandler<Path> bodyHandler = (responseInfo) -> (responseInfo.statusCode() == 200)
+				? BodySubscribers.ofFile(download) : BodySubscribers.replacing(null);
+		Metrics.FetchEvent event = new Metrics.FetchEvent();
+		event.begin();
+		long start = System.nanoTime();
+		return this.httpClient.sendAsync(request.build(), bodyHandler).thenApply((response) -> {
+			try {
+				long bytes = (response.statusCode() == 200) ? Files.size(download) : 0;
+				recordFetch(url, uri, response.statusCode(), bytes, System.nanoTime() - start, event);
+				if (response.statusCode() == 304 && revalidate != null) {
+					Metrics.get().increment("fetch.revalidated");
+					return this.cache.revalidated(revalidate);
+				}
+				if (response.statusCode() >= 500 || response.statusCode() == 429) {
+					throw new TransientFetchException("HTTP " + response.statusCode() + " from " + uri,
+							retryAfter(response.headers()));
+				}
+				if (response.statusCode() != 200) {
+					Log.warn("HTTP " + response.statusCode() + " from " + uri);
+					this.cache.storeNegative(url, response.statusCode());
+					throw new BadStatusCodeException();
+				}
+				HttpHeaders headers = response.headers();
+				return this.cache.store(url, download, headers.firstValue("ETag").orElse(null),
+						headers.firstValue("Last-Modified").orElse(null));
+			}
+			catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+		}).whenComplete((result, ex) -> deleteIfExists(download));
+	}
+
+	private Duration retryAfter(HttpHeaders headers) {
+		try {
+			return headers.firstValue("Retry-After").map(Long::parseLong).map(Duration::ofSeconds).orElse(null);
+		}
+		catch (NumberFormatException ex) {
+			return null;
+		}
+	}
+
+	private void recordFetch(String url, URI uri, int status, long bytes, long nanos, Metrics.FetchEvent event) {
+		Metrics metrics = Metrics.get();
+		metrics.record("fetch.latency." + uri.getHost(), nanos);
+		metrics.add("fetch.bytes." + uri.getHost(), bytes);
+		metrics.increment("fetch.status." + status);
+		event.end();
+		if (event.shouldCommit()) {
+			event.url = url;
+			event.status = status;
+			event.bytes = bytes;
+			event.commit();
+		}
+	}
+
+	private void deleteIfExists(Path path) {
+		try {
+			Files.deleteIfExists(path);
+		}
+		catch (IOException ex) {
+			// Ignore
+		}
+	}
+
+	private static Throwable unwrap(Throwable ex) {
+		return (ex instanceof CompletionException && ex.getCause() != null) ? ex.getCause() : ex;
+	}
+
+	/**
+	 * Timeout, retry and circuit breaker settings.
+	 *
+	 * @param connectTimeout the timeout for establishing a connection
+	 * @param requestTimeout the timeout for receiving a response once connected
+	 * @param maxRetries the number of times that a transient failure is retried
+	 * @param initialBackoff the delay before the first retry, doubled for each one after
+	 * @param maxBackoff the maximum delay before a retry
+	 * @param circuitBreakerThreshold the number of consecutive transient failures after
+	 * which requests to a host fail fast
+	 * @param circuitBreakerOpenDuration how long requests fail fast before a trial
+	 * request is allowed
+	 */
+	record Policy(Duration connectTimeout, Duration requestTimeout, int maxRetries, Duration initialBackoff,
+			Duration maxBackoff, int circuitBreakerThreshold, Duration circuitBreakerOpenDuration) {
+
+		static final Policy DEFAULT = new Policy(Duration.ofSeconds(10), Duration.ofSeconds(30), 3,
+				Duration.ofMillis(500), Duration.ofSeconds(30), 5, Duration.ofSeconds(30));
+
+	}
+
+	/**
+	 * Per-host circuit breaker. Closed while there are fewer consecutive failures than
+	 * the threshold, then open for the configured duration, after which a single trial
+	 * request is allowed through. A success closes the breaker and a failure opens it
+	 * again.
+	 */
+	static class CircuitBreaker {
+
+		private final String host;
+
+		private final int threshold;
+
+		private final long openNanos;
+
+		private int failures;
+
+		private long openUntil;
+
+		private boolean trialInProgress;
+
+		CircuitBreaker(String host, Policy policy) {
+			this.host = host;
+			this.threshold = policy.circuitBreakerThreshold();
+			this.openNanos = policy.circuitBreakerOpenDuration().toNanos();
+		}
+
+		synchronized boolean allowRequest() {
+			if (this.failures < this.threshold) {
+				return true;
+			}
+			if (this.trialInProgress || System.nanoTime() - this.openUntil < 0) {
+				return false;
+			}
+			this.trialInProgress = true;
+			return true;
+		}
+
+		synchronized boolean isOpen() {
+			return this.failures >= this.threshold;
+		}
+
+		synchronized void recordSuccess() {
+			if (this.failures >= this.threshold) {
+				Log.info("Circuit closed for " + this.host);
+			}
+			this.failures = 0;
+			this.trialInProgress = false;
+		}
+
+		synchronized void recordFailure() {
+			this.failures++;
+			if (this.failures >= this.threshold) {
+				if (this.failures == this.threshold || this.trialInProgress) {
+					Log.warn("Circuit open for " + this.host + " after " + this.failures + " consecutive failures");
+				}
+				this.openUntil = System.nanoTime() + this.openNanos;
+			}
+			this.trialInProgress = false;
+		}
+
+	}
+
+	/**
+	 * Limits the number of asynchronous operations that can be in progress at once,
+	 * queueing any others until a permit is released.
+	 */
+	static class ConcurrencyLimit {
+
+		private final Queue<Runnable> waiting = new ArrayDeque<>();
+
+		private int available;
+
+		ConcurrencyLimit(int permits) {
+			this.available = permits;
+		}
+
+		<T> CompletableFuture<T> submit(Callable<CompletableFuture<T>> operation) {
+			CompletableFuture<T> result = new CompletableFuture<>();
+			Runnable start = () -> {
+				CompletableFuture<T> started;
+				try {
+					started = operation.call();
+				}
+				catch (Throwable ex) {
+					started = CompletableFuture.failedFuture(ex);
+				}
+				started.whenComplete((value, ex) -> {
+					release();
+					if (ex != null) {
+						result.completeExceptionally(ex);
+					}
+					else {
+						result.complete(value);
+					}
+				});
+			};
+			if (acquire(start)) {
+				start.run();
+			}
+			return result;
+		}
+
+		private synchronized boolean acquire(Runnable start) {
+			if (this.available > 0) {
+				this.available--;
+				return true;
+			}
+			this.waiting.add(start);
+			return false;
+		}
+
+		private void release() {
+			Runnable next;
+			synchronized (this) {
+				next = this.waiting.poll();
+				if (next == null) {
+					this.available++;
+				}
+			}
+			if (next != null) {
+				next.run();
+			}
+		}
+
+	}
+
+}
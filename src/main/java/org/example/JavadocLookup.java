@@ -0,0 +1,47 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.util.List;
+
+/**
+ * Lookup of the javadoc targets for a name.
+ *
+ * @see LookupTable
+ * @see MappedLookupIndex
+ */
+interface JavadocLookup {
+
+	/**
+	 * Return the targets for the given name.
+	 * @param name the name
+	 * @return the targets or {@code null}
+	 */
+	default List<String> get(CharSequence name) {
+		return get(name, 0, name.length());
+	}
+
+	/**
+	 * Return the targets for the name held in the given region of a character sequence.
+	 * @param source the source characters
+	 * @param start the start of the name (inclusive)
+	 * @param end the end of the name (exclusive)
+	 * @return the targets or {@code null}
+	 */
+	List<String> get(CharSequence source, int start, int end);
+
+}
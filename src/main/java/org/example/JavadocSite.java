@@ -17,29 +17,33 @@
 package org.example;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
-import java.net.URISyntaxException;
-import java.net.http.HttpClient;
-import java.net.http.HttpClient.Redirect;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.net.http.HttpResponse.BodyHandlers;
-import java.nio.file.FileSystems;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
-import java.nio.file.PathMatcher;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectReader;
-
 class JavadocSite {
 
 	static final Pattern javadocPattern = Pattern.compile("(url-.+-javadoc):(.*)$");
@@ -48,49 +52,144 @@ class JavadocSite {
 
 	static final Pattern javadocLocationPattern = Pattern.compile("javadoc-location-(.+):(.*)$");
 
-	static final Pattern allClassesListItemPattern = Pattern.compile("<li>(.+?)<\\/li>");
+	private final JavadocLookup lookup;
+
+	private final LookupTable table;
+
+	private final JavadocFetcher fetcher;
 
-	static final Pattern allClassesAnchorPattern = Pattern.compile("<a href=[\"'](.+?)[\"'].*?>(.*)<\\/a>");
+	private final List<String> failures = new CopyOnWriteArrayList<>();
 
-	static final Pattern innerTagPattern = Pattern.compile("<.*?>(.+)<\\/");
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
-	static final PathMatcher htmlMatcher = FileSystems.getDefault().getPathMatcher("glob:**/*.html");
+	private LazySources lazySources;
 
-	private final Map<String, List<String>> lookup = new HashMap<>();
+	JavadocSite(List<String> antoraYaml, Path javadocSitePath, JavadocFetcher fetcher) {
+		this(antoraYaml, javadocSitePath, fetcher, false);
+	}
 
-	private final ObjectReader reader;
+	JavadocSite(List<String> antoraYaml, Path javadocSitePath, JavadocFetcher fetcher, boolean useTypeSearchIndex) {
+		this(antoraYaml, javadocSitePath, fetcher, useTypeSearchIndex, null);
+	}
 
-	JavadocSite(List<String> antoraYaml, Path javadocSitePath) {
+	/**
+	 * Create a site that indexes the given local javadoc and remote javadoc sources.
+	 * When a catalog is given, the remote sources that it describes are not indexed
+	 * until a name that they could provide is looked up and the catalog is updated with
+	 * the contents of every other source.
+	 * @param antoraYaml the antora.yml lines
+	 * @param javadocSitePath the local javadoc site path
+	 * @param fetcher the fetcher used for remote javadoc
+	 * @param useTypeSearchIndex if the site's own {@code type-search-index.js} should be
+	 * read rather than scanning its pages
+	 * @param catalog the catalog of remote sources or {@code null} to index every source
+	 * up front
+	 */
+	JavadocSite(List<String> antoraYaml, Path javadocSitePath, JavadocFetcher fetcher, boolean useTypeSearchIndex,
+			SourceCatalog catalog) {
+		long start = System.nanoTime();
 		try {
-			this.reader = new ObjectMapper().reader();
-			addSite(javadocSitePath);
-			addUrls(antoraYaml);
+			this.table = new LookupTable();
+			this.lookup = this.table;
+			this.fetcher = fetcher;
+			addSite(javadocSitePath, useTypeSearchIndex);
+			addUrls(antoraYaml, catalog);
+			this.table.compact();
 		}
 		catch (Exception ex) {
 			throw new IllegalStateException(ex);
 		}
+		Metrics.get().record("index.build", System.nanoTime() - start);
 	}
 
-	private void addSite(Path javadocSitePath) throws IOException {
-		Files.find(javadocSitePath, Integer.MAX_VALUE, (path, attr) -> htmlMatcher.matches(path)).forEach((page) -> {
-			Path relative = javadocSitePath.relativize(page);
-			if (Character.isUpperCase(relative.getFileName().toString().charAt(0))
-					&& !relative.toString().contains("-")) {
-				String className = relative.getFileName().toString().replace(".html", "").replace('.', '$');
-				String packageName = relative.getParent().toString().replace("/", ".");
-				add(className, packageName + "." + className);
-				add(packageName + "." + className, packageName + "." + className);
-				if (className.contains("$")) {
-					add(className.replace("$", "."), packageName + "." + className);
-					add(packageName + "." + className.replace("$", "."), packageName + "." + className);
-				}
+	/**
+	 * Create a site backed by an existing lookup. Further types can only be added if the
+	 * lookup is a {@link LookupTable}.
+	 * @param lookup the lookup
+	 */
+	JavadocSite(JavadocLookup lookup) {
+		this.lookup = lookup;
+		this.table = (lookup instanceof LookupTable table) ? table : null;
+		this.fetcher = null;
+	}
+
+	/**
+	 * Load a {@link JavadocSite} from the given snapshot, building and saving a new one if
+	 * the snapshot is missing, was built from different inputs or is older than the
+	 * maximum age of cached remote javadoc. A snapshot holds the remote lookups it was
+	 * built with, so using it would otherwise skip the revalidation that
+	 * {@code --refresh-cache} and {@code --cache-max-age} ask for.
+	 * @param antoraYaml the antora.yml lines
+	 * @param javadocSitePath the local javadoc site path
+	 * @param fetcher the fetcher used for remote javadoc
+	 * @param useTypeSearchIndex if the site's own {@code type-search-index.js} should be
+	 * read rather than scanning its pages
+	 * @param snapshot the snapshot
+	 * @param fingerprint the {@link LookupSnapshot#fingerprint fingerprint} of the inputs
+	 * @param maxAge the maximum age of cached remote javadoc or {@code null} if it never
+	 * expires
+	 * @return the javadoc site
+	 * @throws IOException on IO error
+	 */
+	static JavadocSite load(List<String> antoraYaml, Path javadocSitePath, JavadocFetcher fetcher,
+			boolean useTypeSearchIndex, LookupSnapshot snapshot, byte[] fingerprint, Duration maxAge)
+			throws IOException {
+		LookupTable lookup = (snapshot.isFresh(maxAge)) ? snapshot.read(fingerprint) : null;
+		if (lookup != null) {
+			Log.info("using lookup snapshot");
+			return new JavadocSite(lookup);
+		}
+		JavadocSite site = new JavadocSite(antoraYaml, javadocSitePath, fetcher, useTypeSearchIndex);
+		if (site.isComplete()) {
+			snapshot.write(fingerprint, site.table);
+		}
+		return site;
+	}
+
+	private void addSite(Path javadocSitePath, boolean useTypeSearchIndex) throws IOException {
+		Path typeSearchIndex = javadocSitePath.resolve("type-search-index.js");
+		if (useTypeSearchIndex && Files.isRegularFile(typeSearchIndex)) {
+			Log.info("using " + typeSearchIndex);
+			IndexedTypes indexed = new IndexedTypes("site");
+			try (InputStream input = Files.newInputStream(typeSearchIndex)) {
+				TypeSearchIndex.read(input, (packageName, className) -> {
+					addSiteType(packageName, className);
+					indexed.types++;
+				});
 			}
-		});
+			indexed.record();
+			return;
+		}
+		if (useTypeSearchIndex) {
+			Log.info("no type search index found, scanning " + javadocSitePath);
+		}
+		IndexedTypes indexed = new IndexedTypes("site");
+		List<SitePage> pages;
+		try {
+			pages = ForkJoinPool.commonPool().invoke(new SiteDirectoryScan(javadocSitePath, null));
+		}
+		catch (UncheckedIOException ex) {
+			throw ex.getCause();
+		}
+		for (SitePage page : pages) {
+			addSiteType(page.packageName(), page.className());
+		}
+		indexed.types = pages.size();
+		indexed.record();
+	}
+
+	private void addSiteType(String packageName, String className) {
+		String target = packageName + "." + className;
+		add(className, target);
+		add(target, target);
+		if (className.contains("$")) {
+			add(className.replace("$", "."), target);
+			add(packageName + "." + className.replace("$", "."), target);
+		}
 	}
 
-	private void addUrls(List<String> antoraYaml) throws Exception {
-		HttpClient httpClient = HttpClient.newBuilder().followRedirects(Redirect.ALWAYS).build();
-		Set<String> knownPackages = new HashSet<>();
+	private void addUrls(List<String> antoraYaml, SourceCatalog catalog) throws Exception {
+		KnownPackages knownPackages = new KnownPackages();
 		for (String line : antoraYaml) {
 			Matcher matcher = javadocLocationPattern.matcher(line);
 			if (matcher.find()) {
@@ -106,6 +205,7 @@ class JavadocSite {
 				versions.put(name, version);
 			}
 		}
+		List<RemoteJavadoc> remoteJavadocs = new ArrayList<>();
 		for (String line : antoraYaml) {
 			Matcher javaDocMatcher = javadocPattern.matcher(line);
 			if (javaDocMatcher.find()) {
@@ -115,99 +215,182 @@ class JavadocSite {
 					continue;
 				}
 				String location = "{" + name + "}/";
-				try {
-					addUrl(knownPackages, httpClient, url, location);
-				}
-				catch (Exception ex) {
-					throw new IllegalStateException("Unable to add " + url, ex);
-				}
+				remoteJavadocs.add(new RemoteJavadoc(url, location));
+			}
+		}
+		List<RemoteJavadoc> deferred = new ArrayList<>();
+		Map<RemoteJavadoc, CompletableFuture<FetchedIndex>> fetched = new LinkedHashMap<>();
+		for (RemoteJavadoc remoteJavadoc : remoteJavadocs) {
+			if (catalog != null && catalog.get(remoteJavadoc.url()) != null && !remoteJavadoc.isBuiltIn()) {
+				deferred.add(remoteJavadoc);
+			}
+			else {
+				fetched.put(remoteJavadoc, fetch(remoteJavadoc));
 			}
 		}
+		fetched.forEach((remoteJavadoc, index) -> load(knownPackages, remoteJavadoc, index, catalog));
+		if (!this.failures.isEmpty()) {
+			Log.warn("Indexed %d of %d javadoc sources".formatted(fetched.size() - this.failures.size(),
+					fetched.size()));
+		}
+		if (!deferred.isEmpty()) {
+			Log.info("Deferred indexing %d of %d javadoc sources until they are needed".formatted(deferred.size(),
+					remoteJavadocs.size()));
+			Metrics.get().add("index.deferred", deferred.size());
+			this.lazySources = new LazySources(knownPackages, deferred, catalog);
+		}
+		if (catalog != null) {
+			catalog.save();
+		}
 	}
 
-	private void addUrl(Set<String> knownPackages, HttpClient httpClient, String url, String location)
-			throws Exception {
-		if (url.contains("artemis-jms-server")) {
-			knownPackages.add("org.apache.activemq.artemis.jms.server.config");
-			add(knownPackages, "", "org.apache.activemq.artemis.jms.server.config", "JMSQueueConfiguration");
-			add(knownPackages, "", "org.apache.activemq.artemis.jms.server.config", "TopicConfiguration");
-			return;
-		}
+	/**
+	 * Index a remote source, recording rather than throwing any failure so that the
+	 * rest of the site can still be used.
+	 */
+	private void load(KnownPackages knownPackages, RemoteJavadoc remoteJavadoc,
+			CompletableFuture<FetchedIndex> index, SourceCatalog catalog) {
 		try {
-			addUrlViaSearchElements(knownPackages, httpClient, url, location);
+			List<TypeName> types = addUrl(knownPackages, remoteJavadoc, index);
+			if (catalog != null && !remoteJavadoc.isBuiltIn()) {
+				catalog.put(remoteJavadoc.url(), SourceCatalog.Entry.of(types));
+			}
+		}
+		catch (Exception ex) {
+			Log.warn("Unable to add " + remoteJavadoc.url() + ": " + ex);
+			Metrics.get().increment("index.failed");
+			this.failures.add(remoteJavadoc.url() + " (" + ex + ")");
 		}
-		catch (BadStatusCodeException ex) {
-			addUrlViaAllClassesFrame(knownPackages, httpClient, url, location);
+	}
+
+	private CompletableFuture<FetchedIndex> fetch(RemoteJavadoc remoteJavadoc) {
+		if (remoteJavadoc.isBuiltIn()) {
+			return CompletableFuture.completedFuture(null);
 		}
+		String staticUrl = remoteJavadoc.url().replace("https://javadoc.io/doc/", "https://javadoc.io/static/");
+		String searchUrl = staticUrl + "/type-search-index.js";
+		String allClassesUrl = staticUrl + "/allclasses-frame.html";
+		return this.fetcher.get(searchUrl)
+			.thenApply((body) -> new FetchedIndex(searchUrl, body, false))
+			.exceptionallyCompose((ex) -> (unwrap(ex) instanceof BadStatusCodeException)
+					? this.fetcher.get(allClassesUrl).thenApply((body) -> new FetchedIndex(allClassesUrl, body, true))
+					: CompletableFuture.failedFuture(ex));
 	}
 
-	private void addUrlViaSearchElements(Set<String> knownPackages, HttpClient httpClient, String url, String location)
-			throws Exception {
-		String searchUrl = url.replace("https://javadoc.io/doc/", "https://javadoc.io/static/")
-				+ "/type-search-index.js";
-		String body = getBody(httpClient, searchUrl).replace("typeSearchIndex = ", "");
+	/**
+	 * Index a remote source and return its types. The index is read before the lock is
+	 * taken so that lookups of sources that have already been indexed can continue while
+	 * a source is read.
+	 */
+	private List<TypeName> addUrl(KnownPackages knownPackages, RemoteJavadoc remoteJavadoc,
+			CompletableFuture<FetchedIndex> fetched) throws Exception {
+		IndexedTypes indexed = new IndexedTypes(remoteJavadoc.url());
+		List<TypeName> types = new ArrayList<>();
+		if (remoteJavadoc.isBuiltIn()) {
+			knownPackages.add("org.apache.activemq.artemis.jms.server.config");
+			types.add(new TypeName("org.apache.activemq.artemis.jms.server.config", "JMSQueueConfiguration"));
+			types.add(new TypeName("org.apache.activemq.artemis.jms.server.config", "TopicConfiguration"));
+		}
+		else {
+			FetchedIndex index;
+			try {
+				index = fetched.join();
+			}
+			catch (CompletionException ex) {
+				throw (unwrap(ex) instanceof Exception cause) ? cause : ex;
+			}
+			TypeSearchIndex.TypeConsumer consumer = (packageName, className) -> types
+				.add(new TypeName(packageName, className));
+			if (index.allClassesFrame()) {
+				readAllClassesFrame(index.url(), index.body(), consumer);
+			}
+			else {
+				readSearchElements(index.body(), consumer);
+			}
+		}
+		Lock writeLock = this.lock.writeLock();
+		writeLock.lock();
 		try {
-			TypeSearchElement[] elements = this.reader.readValue(body, TypeSearchElement[].class);
-			for (TypeSearchElement element : elements) {
-				String packageName = element.p();
-				String className = element.l().replace(".", "$");
-				if (packageName != null && !packageName.isEmpty() && className != null && !className.isEmpty()) {
-					add(knownPackages, location, packageName, className);
-				}
+			for (TypeName type : types) {
+				add(knownPackages, remoteJavadoc.location(), type.packageName(), type.className());
 			}
 		}
-		catch (Exception ex) {
-			System.out.println(body);
-			throw ex;
+		finally {
+			writeLock.unlock();
+		}
+		indexed.types = types.size();
+		indexed.record();
+		return types;
+	}
+
+	int addUrlViaSearchElements(KnownPackages knownPackages, HttpCache.Entry body, String location)
+			throws IOException {
+		int[] types = new int[1];
+		readSearchElements(body, (packageName, className) -> {
+			add(knownPackages, location, packageName, className);
+			types[0]++;
+		});
+		return types[0];
+	}
+
+	private void readSearchElements(HttpCache.Entry body, TypeSearchIndex.TypeConsumer consumer) throws IOException {
+		try (InputStream input = body.open()) {
+			TypeSearchIndex.read(input, consumer);
+		}
+		catch (IOException ex) {
+			throw new IOException("Unable to read type search index from " + body.body(), ex);
 		}
 	}
 
-	private void addUrlViaAllClassesFrame(Set<String> knownPackages, HttpClient httpClient, String url, String location)
-			throws Exception {
-		url = url.replace("https://javadoc.io/doc/", "https://javadoc.io/static/");
-		String allClassesUrl = url + "/allclasses-frame.html";
-		String body = getBody(httpClient, allClassesUrl);
+	int addUrlViaAllClassesFrame(KnownPackages knownPackages, String allClassesUrl,
+			HttpCache.Entry allClassesFrame, String location) throws Exception {
+		int[] types = new int[1];
+		readAllClassesFrame(allClassesUrl, allClassesFrame, (packageName, className) -> {
+			add(knownPackages, location, packageName, className);
+			types[0]++;
+		});
+		return types[0];
+	}
+
+	private void readAllClassesFrame(String allClassesUrl, HttpCache.Entry allClassesFrame,
+			TypeSearchIndex.TypeConsumer consumer) throws Exception {
+		String body;
+		try (InputStream input = allClassesFrame.open()) {
+			body = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+		}
+		String url = allClassesUrl.substring(0, allClassesUrl.lastIndexOf('/'));
 		URI uri = new URI(allClassesUrl);
 		String schemeAndHost = uri.getScheme() + "://" + uri.getHost();
 		String prefix = url.substring(schemeAndHost.length()) + "/";
-		Matcher listItemMatcher = allClassesListItemPattern.matcher(body);
-		while (listItemMatcher.find()) {
-			String listItem = listItemMatcher.group(1);
-			Matcher anchorMatcher = allClassesAnchorPattern.matcher(listItem);
-			if (anchorMatcher.find()) {
-				String href = anchorMatcher.group(1);
-				String text = anchorMatcher.group(2);
-				Matcher innerTagMatcher = innerTagPattern.matcher(text);
-				if (innerTagMatcher.find()) {
-					text = innerTagMatcher.group(1);
-				}
-				if (href.endsWith(".html")) {
-					href = href.substring(0, href.length() - 5);
-				}
-				if (href.startsWith(prefix)) {
-					href = href.substring(prefix.length());
-				}
-				int lastSlash = href.lastIndexOf('/');
-				String packageName = href.substring(0, lastSlash).replace('/', '.');
-				String className = text.replace(".", "$");
-				add(knownPackages, location, packageName, className);
+		AllClassesFrame.read(body, (href, text) -> {
+			if (href.endsWith(".html")) {
+				href = href.substring(0, href.length() - 5);
 			}
-		}
+			if (href.startsWith(prefix)) {
+				href = href.substring(prefix.length());
+			}
+			int lastSlash = href.lastIndexOf('/');
+			String packageName = href.substring(0, lastSlash).replace('/', '.');
+			String className = text.replace(".", "$");
+			consumer.accept(packageName, className);
+		});
 	}
 
-	private void add(Set<String> knownPackages, String location, String packageName, String className) {
+	private void add(KnownPackages knownPackages, String location, String packageName, String className) {
 		if (packageName.startsWith("org.springframework.data.r2dbc")
 				&& !location.equals("{url-spring-data-r2dbc-javadoc}/")) {
 			return;
 		}
-		if (isKnownPackage(knownPackages, packageName) && !isTestContainerSplitPackageJar(packageName, className)) {
+		if (knownPackages.contains(packageName) && !isTestContainerSplitPackageJar(packageName, className)) {
 			location = "";
 		}
-		add(className, location + packageName + "." + className);
-		add(packageName + "." + className, location + packageName + "." + className);
+		String qualifiedName = packageName + "." + className;
+		String target = (!location.isEmpty()) ? location + qualifiedName : qualifiedName;
+		add(className, target);
+		add(qualifiedName, target);
 		if (className.contains("$")) {
-			add(className.replace("$", "."), location + packageName + "." + className);
-			add(packageName + "." + className.replace("$", "."), location + packageName + "." + className);
+			add(className.replace("$", "."), target);
+			add(packageName + "." + className.replace("$", "."), target);
 		}
 	}
 
@@ -217,47 +400,6 @@ class JavadocSite {
 						&& (className.equals("Container") || className.equals("GenericContainer")));
 	}
 
-	private boolean isKnownPackage(Set<String> knownPackages, String packageName) {
-		for (String knownPackage : knownPackages) {
-			if (packageName.startsWith(knownPackage)) {
-				return true;
-			}
-		}
-		return false;
-	}
-
-	private String getBody(HttpClient httpClient, String url)
-			throws URISyntaxException, IOException, InterruptedException {
-		HttpRequest request = HttpRequest.newBuilder(new URI(url)).build();
-		String key = url.replace(":", "").replace("/", "_").replace(".", "_");
-		Path cache = Path.of("./cache/" + key);
-		if (Files.exists(cache)) {
-			String result = Files.readString(cache);
-			if (result.startsWith("BadStatusCodeException__")) {
-				throw new BadStatusCodeException();
-			}
-			System.out.println("using cache for " + url);
-			return result;
-		}
-		System.out.println("getting " + url);
-		HttpResponse<String> response = httpClient.send(request, BodyHandlers.ofString());
-		if (response.statusCode() != 200) {
-			System.out.println(response.statusCode());
-			write(cache, "BadStatusCodeException__" + response.statusCode());
-			throw new BadStatusCodeException();
-		}
-		String body = response.body();
-		write(cache, body);
-		return body;
-	}
-
-	private void write(Path cache, String body) throws IOException {
-		if (!Files.exists(cache.getParent())) {
-			Files.createDirectory(cache.getParent());
-		}
-		Files.writeString(cache, body);
-	}
-
 	private String expand(String url, Map<String, String> versions) {
 		for (Map.Entry<String, String> entry : versions.entrySet()) {
 			url = url.replace("{" + entry.getKey() + "}", entry.getValue());
@@ -279,12 +421,338 @@ class JavadocSite {
 		return url;
 	}
 
+	private static Throwable unwrap(Throwable ex) {
+		return (ex instanceof CompletionException && ex.getCause() != null) ? ex.getCause() : ex;
+	}
+
+	/**
+	 * Return if every javadoc source was indexed. Lookups against an incomplete site may
+	 * miss names that the failed sources would have provided, so the site is not saved
+	 * to a snapshot and lookup results should not be persisted.
+	 * @return if the site is complete
+	 */
+	boolean isComplete() {
+		return this.failures.isEmpty();
+	}
+
+	/**
+	 * Return a description of each javadoc source that could not be indexed.
+	 * @return the failures
+	 */
+	List<String> getFailures() {
+		return Collections.unmodifiableList(this.failures);
+	}
+
+	/**
+	 * Export the lookup of this site as a {@link MappedLookupIndex} file.
+	 * @param path the index file
+	 * @throws IOException on IO error
+	 */
+	void exportIndex(Path path) throws IOException {
+		if (this.table == null) {
+			throw new IllegalStateException("Only a site that has been built can be exported");
+		}
+		if (this.lazySources != null) {
+			this.lazySources.loadAll();
+		}
+		if (!isComplete()) {
+			throw new IllegalStateException("Not exporting an incomplete index, unable to index " + this.failures);
+		}
+		MappedLookupIndex.write(path, this.table);
+	}
+
 	private void add(String key, String value) {
-		this.lookup.computeIfAbsent(key, (k) -> new ArrayList<>()).add(value);
+		if (this.table == null) {
+			throw new IllegalStateException("Types cannot be added to a read-only lookup");
+		}
+		this.table.add(key, value);
 	}
 
-	public List<String> lookup(String name) {
-		return this.lookup.get(name);
+	public List<String> lookup(CharSequence name) {
+		List<String> targets = get(name);
+		if (targets != null && targets.size() > 1) {
+			targets = new ArrayList<>(targets);
+			targets.sort(null);
+		}
+		return targets;
+	}
+
+	/**
+	 * Return the targets of the name, in the order that their sources were indexed.
+	 * Deferred sources are indexed in the order that they are needed, so the targets of
+	 * an ambiguous name are sorted before they are returned.
+	 */
+	private List<String> get(CharSequence name) {
+		if (this.lazySources == null) {
+			return this.lookup.get(name);
+		}
+		this.lazySources.load(name.toString());
+		Lock readLock = this.lock.readLock();
+		readLock.lock();
+		try {
+			return this.lookup.get(name);
+		}
+		finally {
+			readLock.unlock();
+		}
+	}
+
+	private record RemoteJavadoc(String url, String location) {
+
+		/**
+		 * Return if the types of this source are known without fetching its javadoc.
+		 */
+		boolean isBuiltIn() {
+			return this.url.contains("artemis-jms-server");
+		}
+
+	}
+
+	/**
+	 * A type read from a javadoc index.
+	 *
+	 * @param packageName the package name
+	 * @param className the class name, with nested class names using {@code $}
+	 */
+	record TypeName(String packageName, String className) {
+
+	}
+
+	private record FetchedIndex(String url, HttpCache.Entry body, boolean allClassesFrame) {
+
+	}
+
+	private record SitePage(String packageName, String className) {
+
+	}
+
+	/**
+	 * Records the number of types indexed from a source as a metric and a JFR event
+	 * that spans the indexing.
+	 */
+	private static final class IndexedTypes {
+
+		private final String source;
+
+		private final Metrics.IndexSourceEvent event = new Metrics.IndexSourceEvent();
+
+		private int types;
+
+		IndexedTypes(String source) {
+			this.source = source;
+			this.event.begin();
+		}
+
+		void record() {
+			Metrics.get().add("index.types." + this.source, this.types);
+			this.event.end();
+			if (this.event.shouldCommit()) {
+				this.event.source = this.source;
+				this.event.types = this.types;
+				this.event.commit();
+			}
+		}
+
+	}
+
+	/**
+	 * Remote sources that are only indexed once a name that they could provide is
+	 * looked up. A simple name could be provided by any source whose catalog entry lists
+	 * it and a qualified name by any source with a package that is a prefix of it. Every
+	 * such source is indexed before the name is looked up, so lookups give the same
+	 * result as they would if every source had been indexed up front.
+	 */
+	private final class LazySources {
+
+		private final KnownPackages knownPackages;
+
+		private final SourceCatalog catalog;
+
+		private final List<LazySource> sources = new ArrayList<>();
+
+		private final Map<String, List<LazySource>> byName = new HashMap<>();
+
+		private final Map<String, List<LazySource>> byPackage = new HashMap<>();
+
+		LazySources(KnownPackages knownPackages, List<RemoteJavadoc> remoteJavadocs, SourceCatalog catalog) {
+			this.knownPackages = knownPackages;
+			this.catalog = catalog;
+			for (RemoteJavadoc remoteJavadoc : remoteJavadocs) {
+				LazySource source = new LazySource(remoteJavadoc);
+				this.sources.add(source);
+				SourceCatalog.Entry entry = catalog.get(remoteJavadoc.url());
+				for (String name : entry.names()) {
+					this.byName.computeIfAbsent(name, (key) -> new ArrayList<>()).add(source);
+				}
+				for (String packageName : entry.packages()) {
+					this.byPackage.computeIfAbsent(packageName, (key) -> new ArrayList<>()).add(source);
+				}
+			}
+		}
+
+		/**
+		 * Index every source that could provide the given name.
+		 * @param name the name
+		 */
+		void load(String name) {
+			List<LazySource> candidates = null;
+			List<LazySource> named = this.byName.get(name);
+			if (named != null) {
+				candidates = new ArrayList<>(named);
+			}
+			for (int dot = name.indexOf('.'); dot != -1; dot = name.indexOf('.', dot + 1)) {
+				List<LazySource> packaged = this.byPackage.get(name.substring(0, dot));
+				if (packaged != null) {
+					candidates = (candidates != null) ? candidates : new ArrayList<>();
+					candidates.addAll(packaged);
+				}
+			}
+			if (candidates != null) {
+				load(candidates);
+			}
+		}
+
+		void loadAll() {
+			load(this.sources);
+		}
+
+		private void load(List<LazySource> sources) {
+			boolean loaded = false;
+			for (LazySource source : sources) {
+				source.fetch();
+			}
+			for (LazySource source : sources) {
+				loaded |= source.load();
+			}
+			if (loaded) {
+				compact();
+				try {
+					this.catalog.save();
+				}
+				catch (IOException ex) {
+					Log.warn("Unable to save source catalog: " + ex);
+				}
+			}
+		}
+
+		private void compact() {
+			Lock writeLock = JavadocSite.this.lock.writeLock();
+			writeLock.lock();
+			try {
+				JavadocSite.this.table.compact();
+			}
+			finally {
+				writeLock.unlock();
+			}
+		}
+
+		/**
+		 * A remote source that is fetched and indexed at most once.
+		 */
+		private final class LazySource {
+
+			private final RemoteJavadoc remoteJavadoc;
+
+			private CompletableFuture<FetchedIndex> index;
+
+			private volatile boolean loaded;
+
+			LazySource(RemoteJavadoc remoteJavadoc) {
+				this.remoteJavadoc = remoteJavadoc;
+			}
+
+			/**
+			 * Start fetching the source if that has not already happened so that sources
+			 * needed for the same name are fetched in parallel.
+			 */
+			synchronized void fetch() {
+				if (!this.loaded && this.index == null) {
+					this.index = JavadocSite.this.fetch(this.remoteJavadoc);
+				}
+			}
+
+			/**
+			 * Index the source if that has not already happened.
+			 * @return if the source was indexed by this call
+			 */
+			boolean load() {
+				if (this.loaded) {
+					return false;
+				}
+				synchronized (this) {
+					if (this.loaded) {
+						return false;
+					}
+					fetch();
+					Log.debug("Indexing deferred source " + this.remoteJavadoc.url());
+					Metrics.get().increment("index.lazy-loaded");
+					JavadocSite.this.load(LazySources.this.knownPackages, this.remoteJavadoc, this.index,
+							LazySources.this.catalog);
+					this.index = null;
+					this.loaded = true;
+					return true;
+				}
+			}
+
+		}
+
+	}
+
+	/**
+	 * Scans a directory of the local javadoc site, forking a task for each
+	 * sub-directory. Names are checked before any path or package strings are built so
+	 * that rejected pages and {@code class-use} or {@code doc-files} directories cost as
+	 * little as possible. Pages are returned sorted by name followed by the pages of each
+	 * sub-directory in name order, so the result does not depend on the file system or
+	 * the order that tasks complete.
+	 */
+	private static final class SiteDirectoryScan extends RecursiveTask<List<SitePage>> {
+
+		private final Path directory;
+
+		private final String packageName;
+
+		SiteDirectoryScan(Path directory, String packageName) {
+			this.directory = directory;
+			this.packageName = packageName;
+		}
+
+		@Override
+		protected List<SitePage> compute() {
+			List<String> classNames = new ArrayList<>();
+			List<SiteDirectoryScan> subdirectories = new ArrayList<>();
+			try (DirectoryStream<Path> entries = Files.newDirectoryStream(this.directory)) {
+				for (Path entry : entries) {
+					String name = entry.getFileName().toString();
+					if (name.indexOf('-') != -1) {
+						continue;
+					}
+					if (name.endsWith(".html")) {
+						if (this.packageName != null && Character.isUpperCase(name.charAt(0))) {
+							classNames.add(name.substring(0, name.length() - 5).replace('.', '$'));
+						}
+					}
+					else if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+						String subpackageName = (this.packageName != null) ? this.packageName + "." + name : name;
+						subdirectories.add(new SiteDirectoryScan(entry, subpackageName));
+					}
+				}
+			}
+			catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+			classNames.sort(null);
+			subdirectories.sort(Comparator.comparing((scan) -> scan.packageName));
+			List<SitePage> pages = new ArrayList<>();
+			for (String className : classNames) {
+				pages.add(new SitePage(this.packageName, className));
+			}
+			for (SiteDirectoryScan subdirectory : invokeAll(subdirectories)) {
+				pages.addAll(subdirectory.join());
+			}
+			return pages;
+		}
+
 	}
 
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.util.Arrays;
+
+/**
+ * Packages that are documented by the site itself, held as a trie of package name
+ * segments. A package is known if it is one of the added packages or a sub-package of
+ * one, so {@code org.foo} matches {@code org.foo.bar} but not {@code org.foobar}.
+ */
+class KnownPackages {
+
+	private final Node root = new Node();
+
+	/**
+	 * Add a known package.
+	 * @param packageName the package name
+	 */
+	void add(String packageName) {
+		Node node = this.root;
+		int start = 0;
+		while (start <= packageName.length()) {
+			int end = segmentEnd(packageName, start);
+			node = node.getOrAddChild(packageName.substring(start, end));
+			start = end + 1;
+		}
+		node.terminal = true;
+	}
+
+	/**
+	 * Return if the given package is a known package or a sub-package of one.
+	 * @param packageName the package name
+	 * @return if the package is known
+	 */
+	boolean contains(String packageName) {
+		Node node = this.root;
+		int start = 0;
+		while (start <= packageName.length()) {
+			int end = segmentEnd(packageName, start);
+			node = node.getChild(packageName, start, end);
+			if (node == null) {
+				return false;
+			}
+			if (node.terminal) {
+				return true;
+			}
+			start = end + 1;
+		}
+		return false;
+	}
+
+	private static int segmentEnd(String packageName, int start) {
+		int end = packageName.indexOf('.', start);
+		return (end != -1) ? end : packageName.length();
+	}
+
+	/**
+	 * A node in the trie. Children are held in small parallel arrays since most nodes
+	 * only have a handful of them.
+	 */
+	private static final class Node {
+
+		private String[] segments = new String[0];
+
+		private Node[] children = new Node[0];
+
+		private boolean terminal;
+
+		Node getChild(String packageName, int start, int end) {
+			int length = end - start;
+			for (int i = 0; i < this.segments.length; i++) {
+				String segment = this.segments[i];
+				if (segment.length() == length && packageName.regionMatches(start, segment, 0, length)) {
+					return this.children[i];
+				}
+			}
+			return null;
+		}
+
+		Node getOrAddChild(String segment) {
+			Node child = getChild(segment, 0, segment.length());
+			if (child == null) {
+				child = new Node();
+				this.segments = Arrays.copyOf(this.segments, this.segments.length + 1);
+				this.children = Arrays.copyOf(this.children, this.children.length + 1);
+				this.segments[this.segments.length - 1] = segment;
+				this.children[this.children.length - 1] = child;
+			}
+			return child;
+		}
+
+	}
+
+}
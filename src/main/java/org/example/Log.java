@@ -0,0 +1,159 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Leveled console output. {@link Level#DEBUG} messages, which are written for every
+ * request and file, go to a buffered stream so that they do not cost a system call each.
+ * Other messages are rare and are written immediately, with warnings and errors going to
+ * {@code System.err}. All messages can be sent to {@code System.err} when
+ * {@code System.out} is needed for other output.
+ */
+final class Log {
+
+	private static PrintStream debugOut = buffered(FileDescriptor.out);
+
+	private static PrintStream infoOut = System.out;
+
+	private static volatile Level level = Level.INFO;
+
+	private Log() {
+	}
+
+	/**
+	 * Set the level below which messages are discarded.
+	 * @param level the level
+	 */
+	static void setLevel(Level level) {
+		Log.level = level;
+	}
+
+	/**
+	 * Write {@link Level#INFO} and {@link Level#DEBUG} messages to {@code System.err}
+	 * rather than {@code System.out}.
+	 */
+	static void useStandardError() {
+		synchronized (Log.class) {
+			debugOut.flush();
+			debugOut = buffered(FileDescriptor.err);
+			infoOut = System.err;
+		}
+	}
+
+	/**
+	 * Return if messages at the given level are written.
+	 * @param level the level
+	 * @return if the level is enabled
+	 */
+	static boolean isEnabled(Level level) {
+		return level.ordinal() <= Log.level.ordinal();
+	}
+
+	static void error(String message) {
+		write(Level.ERROR, message);
+	}
+
+	static void warn(String message) {
+		write(Level.WARN, message);
+	}
+
+	static void info(String message) {
+		write(Level.INFO, message);
+	}
+
+	static void debug(String message) {
+		write(Level.DEBUG, message);
+	}
+
+	/**
+	 * Write a group of messages without any other output between them.
+	 * @param messages the messages to write
+	 */
+	static void write(List<Message> messages) {
+		synchronized (Log.class) {
+			for (Message message : messages) {
+				write(message.level(), message.text());
+			}
+		}
+	}
+
+	private static void write(Level level, String message) {
+		if (!isEnabled(level)) {
+			return;
+		}
+		synchronized (Log.class) {
+			if (level == Level.DEBUG) {
+				debugOut.println(message);
+				return;
+			}
+			debugOut.flush();
+			((level != Level.INFO) ? System.err : infoOut).println(message);
+		}
+	}
+
+	/**
+	 * Flush any buffered {@link Level#DEBUG} output.
+	 */
+	static void flush() {
+		synchronized (Log.class) {
+			debugOut.flush();
+		}
+	}
+
+	private static PrintStream buffered(FileDescriptor descriptor) {
+		return new PrintStream(new BufferedOutputStream(new FileOutputStream(descriptor), 64 * 1024), false,
+				StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Log levels, from the least to the most verbose.
+	 */
+	enum Level {
+
+		ERROR, WARN, INFO, DEBUG;
+
+		static Level parse(String value) {
+			try {
+				return valueOf(value.toUpperCase(Locale.ROOT));
+			}
+			catch (IllegalArgumentException ex) {
+				throw new IllegalArgumentException(
+						"Option '--log-level' must be one of error, warn, info or debug", ex);
+			}
+		}
+
+	}
+
+	/**
+	 * A message to be written as part of a group.
+	 *
+	 * @param level the level
+	 * @param text the text
+	 */
+	record Message(Level level, String text) {
+
+	}
+
+}
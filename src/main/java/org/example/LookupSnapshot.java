@@ -0,0 +1,239 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Binary snapshot of a {@link JavadocSite} {@link LookupTable}, keyed by a fingerprint of the inputs
+ * that were used to build it.
+ */
+class LookupSnapshot {
+
+	private static final int MAGIC = 0x4A444C53;
+
+	private static final int VERSION = 2;
+
+	private final Path path;
+
+	LookupSnapshot(Path path) {
+		this.path = path;
+	}
+
+	/**
+	 * Return if the snapshot exists and was written less than the given maximum age ago.
+	 * @param maxAge the maximum age or {@code null} if the snapshot never expires
+	 * @return if the snapshot is fresh
+	 * @throws IOException on IO error
+	 */
+	boolean isFresh(Duration maxAge) throws IOException {
+		if (!Files.exists(this.path)) {
+			return false;
+		}
+		Instant written = Files.getLastModifiedTime(this.path).toInstant();
+		return maxAge == null || Instant.now().isBefore(written.plus(maxAge));
+	}
+
+	/**
+	 * Read the lookup table from the snapshot if it was built from inputs with the given
+	 * fingerprint. A snapshot that is corrupt, for example because it was truncated, is
+	 * ignored so that it is rebuilt.
+	 * @param fingerprint the fingerprint of the inputs
+	 * @return the lookup table or {@code null}
+	 * @throws IOException on IO error
+	 */
+	LookupTable read(byte[] fingerprint) throws IOException {
+		if (!Files.exists(this.path)) {
+			return null;
+		}
+		try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.remaining() < 8 + fingerprint.length || buffer.getInt() != MAGIC
+					|| buffer.getInt() != VERSION) {
+				return null;
+			}
+			byte[] storedFingerprint = new byte[fingerprint.length];
+			buffer.get(storedFingerprint);
+			if (!Arrays.equals(fingerprint, storedFingerprint)) {
+				return null;
+			}
+			return read(buffer);
+		}
+		catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException ex) {
+			Log.warn("Ignoring corrupt lookup snapshot " + this.path + ": " + ex);
+			return null;
+		}
+	}
+
+	private LookupTable read(ByteBuffer buffer) {
+		byte[] bytes = new byte[256];
+		int targetCount = readLength(buffer);
+		List<String> targets = new ArrayList<>(targetCount);
+		for (int i = 0; i < targetCount; i++) {
+			targets.add(readString(buffer, bytes));
+		}
+		LookupTable lookup = LookupTable.withTargets(targets);
+		int keyCount = readLength(buffer);
+		for (int i = 0; i < keyCount; i++) {
+			String key = readString(buffer, bytes);
+			int[] ids = new int[readLength(buffer)];
+			for (int j = 0; j < ids.length; j++) {
+				ids[j] = Objects.checkIndex(buffer.getInt(), targetCount);
+			}
+			lookup.addTargetIds(key, ids);
+		}
+		return lookup;
+	}
+
+	private String readString(ByteBuffer buffer, byte[] reusable) {
+		int length = readLength(buffer);
+		byte[] bytes = (length <= reusable.length) ? reusable : new byte[length];
+		buffer.get(bytes, 0, length);
+		return new String(bytes, 0, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Read a length or count, checking that it is not negative and that the snapshot is
+	 * long enough for it so that a corrupt value cannot cause a huge allocation.
+	 */
+	private int readLength(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length < 0 || length > buffer.remaining()) {
+			throw new BufferUnderflowException();
+		}
+		return length;
+	}
+
+	void write(byte[] fingerprint, LookupTable lookup) throws IOException {
+		Files.createDirectories(this.path.toAbsolutePath().getParent());
+		Path temp = Files.createTempFile(this.path.toAbsolutePath().getParent(), "lookup", ".tmp");
+		try {
+			try (OutputStream outputStream = Files.newOutputStream(temp);
+					DataOutputStream output = new DataOutputStream(new BufferedOutputStream(outputStream))) {
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+				output.write(fingerprint);
+				List<String> targets = lookup.getTargets();
+				output.writeInt(targets.size());
+				for (String target : targets) {
+					writeString(output, target);
+				}
+				output.writeInt(lookup.size());
+				lookup.forEachKey((key, ids) -> {
+					try {
+						writeString(output, key);
+						output.writeInt(ids.length);
+						for (int id : ids) {
+							output.writeInt(id);
+						}
+					}
+					catch (IOException ex) {
+						throw new UncheckedIOException(ex);
+					}
+				});
+			}
+			Files.move(temp, this.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private void writeString(DataOutputStream output, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+
+	/**
+	 * Return a fingerprint of the given antora.yml content and javadoc site. Only the
+	 * names of the site's pages contribute to the lookup so the modification times of
+	 * its directories are enough to detect a change. When the site's
+	 * {@code type-search-index.js} is used instead of its pages, that file's size and
+	 * modification time are included too, as it can change without any directory
+	 * changing.
+	 * @param antoraYaml the antora.yml lines
+	 * @param javadocSitePath the javadoc site path
+	 * @param useTypeSearchIndex if the site's {@code type-search-index.js} is read
+	 * rather than scanning its pages
+	 * @return the fingerprint
+	 * @throws IOException on IO error
+	 */
+	static byte[] fingerprint(List<String> antoraYaml, Path javadocSitePath, boolean useTypeSearchIndex)
+			throws IOException {
+		MessageDigest digest = sha256();
+		digest.update(ByteBuffer.allocate(4).putInt(VERSION).array());
+		for (String line : antoraYaml) {
+			digest.update(line.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) '\n');
+		}
+		digest.update((byte) ((useTypeSearchIndex) ? 1 : 0));
+		Path typeSearchIndex = javadocSitePath.resolve("type-search-index.js");
+		if (useTypeSearchIndex && Files.isRegularFile(typeSearchIndex)) {
+			BasicFileAttributes attributes = Files.readAttributes(typeSearchIndex, BasicFileAttributes.class);
+			digest.update(ByteBuffer.allocate(16)
+				.putLong(attributes.size())
+				.putLong(attributes.lastModifiedTime().toMillis())
+				.array());
+		}
+		Files.walkFileTree(javadocSitePath, new SimpleFileVisitor<>() {
+
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+				digest.update(javadocSitePath.relativize(dir).toString().getBytes(StandardCharsets.UTF_8));
+				digest.update(ByteBuffer.allocate(8).putLong(attrs.lastModifiedTime().toMillis()).array());
+				return FileVisitResult.CONTINUE;
+			}
+
+		});
+		return digest.digest();
+	}
+
+	private static MessageDigest sha256() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Compact symbol table mapping names to javadoc targets. Each distinct target is
+ * interned once and referenced by an {@code int} id. Keys are held in an open
+ * addressing table where a key with a single target stores the id inline and only keys
+ * with several targets need an array. Lookups hash the {@link CharSequence} directly so
+ * that a region of a larger string can be probed without creating a substring. The map
+ * used to intern targets is only held while targets are being added and is released by
+ * {@link #compact()}.
+ */
+class LookupTable implements JavadocLookup {
+
+	private final List<String> targets = new ArrayList<>();
+
+	private Map<String, Integer> targetIds = new HashMap<>();
+
+	private final List<int[]> multiple = new ArrayList<>();
+
+	private String[] keys = new String[1024];
+
+	private int[] hashes = new int[1024];
+
+	private int[] values = new int[1024];
+
+	private int size;
+
+	/**
+	 * Add a target for the given key. A key can have several targets which are returned
+	 * in the order that they were added.
+	 * @param key the key
+	 * @param target the target
+	 */
+	void add(String key, String target) {
+		if (this.targetIds == null) {
+			this.targetIds = new HashMap<>(this.targets.size() * 2);
+			for (int i = 0; i < this.targets.size(); i++) {
+				this.targetIds.put(this.targets.get(i), i);
+			}
+		}
+		Integer targetId = this.targetIds.get(target);
+		if (targetId == null) {
+			targetId = this.targets.size();
+			this.targets.add(target);
+			this.targetIds.put(target, targetId);
+		}
+		addId(key, targetId);
+	}
+
+	private void addId(String key, int targetId) {
+		int hash = hash(key, 0, key.length());
+		int slot = find(key, 0, key.length(), hash);
+		if (this.keys[slot] == null) {
+			this.keys[slot] = key;
+			this.hashes[slot] = hash;
+			this.values[slot] = targetId;
+			if (++this.size * 2 > this.keys.length) {
+				resize();
+			}
+			return;
+		}
+		int value = this.values[slot];
+		if (value >= 0) {
+			this.multiple.add(new int[] { value, targetId });
+			this.values[slot] = -this.multiple.size();
+		}
+		else {
+			int[] ids = this.multiple.get(-value - 1);
+			ids = Arrays.copyOf(ids, ids.length + 1);
+			ids[ids.length - 1] = targetId;
+			this.multiple.set(-value - 1, ids);
+		}
+	}
+
+	private void resize() {
+		String[] keys = this.keys;
+		int[] hashes = this.hashes;
+		int[] values = this.values;
+		this.keys = new String[keys.length * 2];
+		this.hashes = new int[keys.length * 2];
+		this.values = new int[keys.length * 2];
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != null) {
+				int slot = hashes[i] & (this.keys.length - 1);
+				while (this.keys[slot] != null) {
+					slot = (slot + 1) & (this.keys.length - 1);
+				}
+				this.keys[slot] = keys[i];
+				this.hashes[slot] = hashes[i];
+				this.values[slot] = values[i];
+			}
+		}
+	}
+
+	@Override
+	public List<String> get(CharSequence source, int start, int end) {
+		int slot = find(source, start, end, hash(source, start, end));
+		if (this.keys[slot] == null) {
+			return null;
+		}
+		int value = this.values[slot];
+		if (value >= 0) {
+			return Collections.singletonList(this.targets.get(value));
+		}
+		int[] ids = this.multiple.get(-value - 1);
+		List<String> result = new ArrayList<>(ids.length);
+		for (int id : ids) {
+			result.add(this.targets.get(id));
+		}
+		return result;
+	}
+
+	private int find(CharSequence source, int start, int end, int hash) {
+		int mask = this.keys.length - 1;
+		int slot = hash & mask;
+		while (this.keys[slot] != null) {
+			if (this.hashes[slot] == hash && contentEquals(this.keys[slot], source, start, end)) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private boolean contentEquals(String key, CharSequence source, int start, int end) {
+		if (key.length() != end - start) {
+			return false;
+		}
+		for (int i = 0; i < key.length(); i++) {
+			if (key.charAt(i) != source.charAt(start + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int hash(CharSequence source, int start, int end) {
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + source.charAt(i);
+		}
+		return hash ^ (hash >>> 16);
+	}
+
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * Release the map used to intern targets once no more are expected to be added. It
+	 * is rebuilt if {@link #add(String, String)} is called again.
+	 */
+	void compact() {
+		this.targetIds = null;
+	}
+
+	/**
+	 * Call the given action for each key with the ids of its targets.
+	 * @param action the action to call
+	 */
+	void forEachKey(BiConsumer<String, int[]> action) {
+		int[] single = new int[1];
+		for (int i = 0; i < this.keys.length; i++) {
+			if (this.keys[i] != null) {
+				int value = this.values[i];
+				if (value >= 0) {
+					single[0] = value;
+					action.accept(this.keys[i], single);
+				}
+				else {
+					action.accept(this.keys[i], this.multiple.get(-value - 1));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Return the interned targets, indexed by id.
+	 * @return the targets
+	 */
+	List<String> getTargets() {
+		return Collections.unmodifiableList(this.targets);
+	}
+
+	/**
+	 * Create a table with previously exported targets. Keys can then be restored using
+	 * {@link #addTargetIds(String, int[])}.
+	 * @param targets the targets indexed by id
+	 * @return a new table
+	 */
+	static LookupTable withTargets(List<String> targets) {
+		LookupTable table = new LookupTable();
+		table.targets.addAll(targets);
+		table.compact();
+		return table;
+	}
+
+	void addTargetIds(String key, int[] ids) {
+		for (int id : ids) {
+			addId(key, id);
+		}
+	}
+
+}
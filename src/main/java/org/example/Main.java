@@ -1,35 +1,47 @@
 package org.example;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
-public class Main {
-
-	static final String DIR = "/Users/pwebb/projects/spring-boot/code/3.4.x/";
-
-	static final Path JAVADOC_SITE_PATH = Path.of(DIR + "spring-boot-project/spring-boot-docs/build/site/api/java");
+import jdk.jfr.Recording;
 
-	static final Path ANTORA_SOURCE_PATH = Path
-		.of(DIR + "spring-boot-project/spring-boot-docs/src/docs/antora/modules");
+public class Main {
 
-	static final Path ANTORA_YAML_PATH = Path
-		.of(DIR + "spring-boot-project/spring-boot-docs/build/generated/docs/antora-yml/antora.yml");
+	static final Path CACHE_PATH = Path.of("./cache");
 
-	static final Pattern xrefPattern = Pattern.compile("xref:api:java\\/([^\\.]+)/(.*?)\\.html(#[^\\[]+)?\\[(.*?)\\]");
+	static final PathMatcher adocMatcher = FileSystems.getDefault().getPathMatcher("glob:**/*.adoc");
 
-	static final Pattern classNamePattern = Pattern.compile("([\\s\\n])`([A-Za-z\\.@][A-Za-z0-9\\.]+)`");
+	private static final long DEFAULT_STREAMING_THRESHOLD = 1024 * 1024;
 
-	static final PathMatcher adocMatcher = FileSystems.getDefault().getPathMatcher("glob:**/*.adoc");
+	private static final int STREAMING_CHUNK_SIZE = 64 * 1024;
 
 	private static final Map<String, String> COMMON_ANNOTATION_NAMES;
 	static {
@@ -84,107 +96,489 @@ public class Main {
 
 	private final JavadocSite javadocSite;
 
-	private Main() throws IOException {
-		List<String> antoraYaml = Files.readAllLines(ANTORA_YAML_PATH);
-		this.javadocSite = new JavadocSite(antoraYaml, JAVADOC_SITE_PATH);
+	private final int migrationThreads;
+
+	private final MigrationManifest manifest;
+
+	private final long streamingThreshold;
+
+	private final ClassNameResolver classNameResolver;
+
+	private final MigrationWriter writer;
+
+	Main(JavadocSite javadocSite, int migrationThreads) {
+		this(javadocSite, migrationThreads, null, DEFAULT_STREAMING_THRESHOLD);
+	}
+
+	Main(JavadocSite javadocSite, int migrationThreads, MigrationManifest manifest, long streamingThreshold) {
+		this(javadocSite, migrationThreads, manifest, streamingThreshold, MigrationWriter.immediate());
+	}
+
+	Main(JavadocSite javadocSite, int migrationThreads, MigrationManifest manifest, long streamingThreshold,
+			MigrationWriter writer) {
+		this(javadocSite, migrationThreads, manifest, streamingThreshold, writer, true);
+	}
+
+	private Main(JavadocSite javadocSite, int migrationThreads, MigrationManifest manifest, long streamingThreshold,
+			MigrationWriter writer, boolean recordNames) {
+		this.javadocSite = javadocSite;
+		this.migrationThreads = migrationThreads;
+		this.manifest = manifest;
+		this.streamingThreshold = streamingThreshold;
+		this.classNameResolver = new ClassNameResolver(this::resolveClassName, recordNames);
+		this.writer = writer;
+	}
+
+	/**
+	 * Create an instance that serves individual {@link #migrateFile(Path, Set) migrate} and
+	 * {@link #replace(String, Set) replace} requests for as long as the given site is
+	 * used. Unknown and ambiguous names are not collected for a summary, as there is no
+	 * end of run to report them at, and should be reported for each request using
+	 * {@link #getAmbiguousNames(Collection)} instead.
+	 * @param javadocSite the javadoc site
+	 * @return the instance
+	 */
+	static Main forRequests(JavadocSite javadocSite) {
+		return new Main(javadocSite, 1, null, DEFAULT_STREAMING_THRESHOLD, MigrationWriter.immediate(), false);
+	}
+
+	private static Main create(Options options) throws IOException {
+		if (options.getIndexPath() != null) {
+			return createFromIndex(options);
+		}
+		List<String> antoraYaml = Files.readAllLines(options.getAntoraYamlPath());
+		byte[] fingerprint = (options.getSnapshotPath() != null || options.isIncremental())
+				? LookupSnapshot.fingerprint(antoraYaml, options.getJavadocSitePath(),
+						options.isUseSiteTypeSearchIndex())
+				: null;
+		JavadocSite javadocSite = createJavadocSite(options, antoraYaml, fingerprint);
+		if (options.getExportIndexPath() != null) {
+			javadocSite.exportIndex(options.getExportIndexPath());
+			Log.info("exported index to " + options.getExportIndexPath());
+		}
+		MigrationManifest manifest = (options.isIncremental())
+				? MigrationManifest.load(options.getManifestPath(), HexFormat.of().formatHex(fingerprint)) : null;
+		return create(options, javadocSite, manifest);
+	}
+
+	/**
+	 * Create an instance that uses a previously exported index rather than building the
+	 * javadoc site, so neither the site nor {@code antora.yml} are needed. The hash of
+	 * the index file stands in for the fingerprint of the inputs.
+	 */
+	private static Main createFromIndex(Options options) throws IOException {
+		if (options.getExportIndexPath() != null) {
+			throw new IllegalArgumentException("Options '--index' and '--export-index' cannot be used together");
+		}
+		MappedLookupIndex index = MappedLookupIndex.open(options.getIndexPath());
+		Log.info("using index " + options.getIndexPath() + " with " + index.size() + " keys");
+		MigrationManifest manifest = (options.isIncremental()) ? MigrationManifest.load(options.getManifestPath(),
+				MigrationManifest.hash(options.getIndexPath())) : null;
+		return create(options, new JavadocSite(index), manifest);
+	}
+
+	private static Main create(Options options, JavadocSite javadocSite, MigrationManifest manifest)
+			throws IOException {
+		Path diffOutputPath = options.getDiffOutputPath();
+		PrintStream diffOutput = (diffOutputPath != null)
+				? new PrintStream(Files.newOutputStream(diffOutputPath), false, StandardCharsets.UTF_8) : System.out;
+		MigrationWriter writer = new MigrationWriter(options.getWriteMode(), options.getAntoraSourcePath(),
+				diffOutput);
+		return new Main(javadocSite, options.getMigrationThreads(), manifest, options.getStreamingThreshold(),
+				writer);
+	}
+
+	private static JavadocSite createJavadocSite(Options options) throws IOException {
+		if (options.getIndexPath() != null) {
+			return new JavadocSite(MappedLookupIndex.open(options.getIndexPath()));
+		}
+		List<String> antoraYaml = Files.readAllLines(options.getAntoraYamlPath());
+		byte[] fingerprint = (options.getSnapshotPath() != null)
+				? LookupSnapshot.fingerprint(antoraYaml, options.getJavadocSitePath(),
+						options.isUseSiteTypeSearchIndex())
+				: null;
+		return createJavadocSite(options, antoraYaml, fingerprint);
+	}
+
+	private static JavadocSite createJavadocSite(Options options, List<String> antoraYaml, byte[] fingerprint)
+			throws IOException {
+		HttpCache cache = new HttpCache(CACHE_PATH, options.getCacheMaxAge(), options.getNegativeCacheTtl(),
+				options.getCacheMaxSize());
+		JavadocFetcher fetcher = new JavadocFetcher(cache, options.getFetchConcurrency(),
+				options.getFetchConcurrencyPerHost(), options.getFetchPolicy());
+		Path javadocSitePath = options.getJavadocSitePath();
+		boolean useTypeSearchIndex = options.isUseSiteTypeSearchIndex();
+		if (options.isLazyRemoteIndex()) {
+			SourceCatalog catalog = SourceCatalog.load(options.getSourceCatalogPath());
+			return new JavadocSite(antoraYaml, javadocSitePath, fetcher, useTypeSearchIndex, catalog);
+		}
+		return (options.getSnapshotPath() != null)
+				? JavadocSite.load(antoraYaml, javadocSitePath, fetcher, useTypeSearchIndex,
+						new LookupSnapshot(options.getSnapshotPath()), fingerprint, options.getCacheMaxAge())
+				: new JavadocSite(antoraYaml, javadocSitePath, fetcher, useTypeSearchIndex);
+	}
+
+	/**
+	 * Migrate the files of the given shard. Staged {@link MigrationWriter.Mode#BATCH
+	 * batch} writes are only committed once every check has passed, so a run that fails
+	 * leaves the source files unchanged.
+	 * @param sourcePath the Antora source directory
+	 * @param shard the shard to migrate
+	 * @param reportPath the file to write a {@link MigrationReport} to or {@code null}
+	 * @throws Exception on error
+	 */
+	private void run(Path sourcePath, Shard shard, Path reportPath) throws Exception {
+		try {
+			Set<Path> changed = new ConcurrentSkipListSet<>();
+			int files = migrateAll(sourcePath, shard, changed);
+			this.classNameResolver.logSummary();
+			if (!this.javadocSite.isComplete()) {
+				Log.warn("Names from " + this.javadocSite.getFailures().size()
+						+ " javadoc source(s) that could not be indexed were left unchanged:");
+				this.javadocSite.getFailures().forEach((failure) -> Log.warn("  " + failure));
+			}
+			if (reportPath != null) {
+				List<String> changedNames = changed.stream()
+					.map((path) -> Shard.relativeName(sourcePath, path))
+					.toList();
+				new MigrationReport(shard, files, changedNames, this.classNameResolver.getUnknownNames(),
+						this.classNameResolver.getAmbiguousNames(), this.javadocSite.getFailures())
+					.write(reportPath);
+			}
+			this.classNameResolver.assertNoAmbiguousNames();
+			this.writer.commit();
+		}
+		finally {
+			this.writer.abort();
+			if (this.manifest != null && this.writer.isWritten()) {
+				this.manifest.save();
+			}
+		}
+	}
+
+	private int migrateAll(Path sourcePath, Shard shard, Set<Path> changed) throws Exception {
+		List<Path> all;
+		try (Stream<Path> found = Files.find(sourcePath, Integer.MAX_VALUE, this::shouldMigrate)) {
+			all = found.sorted().toList();
+		}
+		List<Path> paths = shard.select(sourcePath, all);
+		if (shard.count() > 1) {
+			Log.info("Shard %s (%s) has %d of %d file(s)".formatted(shard,
+					shard.strategy().name().toLowerCase(Locale.ROOT), paths.size(), all.size()));
+		}
+		if (this.migrationThreads == 1) {
+			paths.forEach((path) -> migrate(path, changed));
+			return paths.size();
+		}
+		ExecutorService executor = Executors.newWorkStealingPool(this.migrationThreads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (Path path : paths) {
+				futures.add(executor.submit(() -> migrate(path, changed)));
+			}
+			for (Future<?> future : futures) {
+				try {
+					future.get();
+				}
+				catch (ExecutionException ex) {
+					throw (ex.getCause() instanceof Exception cause) ? cause : ex;
+				}
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		return paths.size();
 	}
 
-	private void run(String[] args) throws IOException {
-		Files.find(ANTORA_SOURCE_PATH, Integer.MAX_VALUE, this::shouldMigrate).forEach(this::migrate);
+	private void migrate(Path path, Set<Path> changed) {
+		if (migrate(path)) {
+			changed.add(path);
+		}
 	}
 
 	private boolean shouldMigrate(Path path, BasicFileAttributes attributes) {
 		return adocMatcher.matches(path) && !path.getFileName().toString().startsWith("nav-");
 	}
 
-	public void migrate(Path path) {
+	/**
+	 * Migrate the given file in place.
+	 * @param path the file to migrate
+	 * @return if any replacements were written
+	 */
+	public boolean migrate(Path path) {
+		return migrateFile(path, new HashSet<>());
+	}
+
+	/**
+	 * Migrate the given file in place, collecting the names that were looked up.
+	 * @param path the file to migrate
+	 * @param lookups the set to add the looked up names to
+	 * @return if any replacements were written
+	 */
+	boolean migrateFile(Path path, Set<String> lookups) {
+		MigrationLog log = new MigrationLog();
+		Metrics.FileMigrationEvent event = new Metrics.FileMigrationEvent();
+		event.begin();
+		long start = System.nanoTime();
+		boolean replaced = false;
 		try {
-			System.out.println("Considering " + path);
-			String content = Files.readString(path);
-			String replacement = replace(content);
-			if (replacement != null) {
-				System.out.println(" - writing replacements");
-				Files.writeString(path, replacement);
+			log.out("Considering " + path);
+			boolean streaming = Files.size(path) > this.streamingThreshold;
+			byte[] bytes = (!streaming) ? Files.readAllBytes(path) : null;
+			String hash = (this.manifest != null) ? hash(path, bytes) : null;
+			if (this.manifest != null && this.manifest.isUnchanged(path, hash, this.javadocSite)) {
+				log.out(" - unchanged since last run");
+				Metrics.get().increment("migration.unchanged");
+				return false;
+			}
+			if (streaming) {
+				Path temp = replaceStreaming(path, log, lookups);
+				replaced = temp != null;
+				if (replaced) {
+					log.out(" - writing replacements");
+					hash = (this.manifest != null) ? MigrationManifest.hash(temp) : null;
+					this.writer.write(path, temp);
+				}
 			}
 			else {
-				System.out.println(" - no replacements");
+				String content = new String(bytes, StandardCharsets.UTF_8);
+				String replacement = replace(content, log, lookups);
+				replaced = replacement != null;
+				if (replaced) {
+					log.out(" - writing replacements");
+					hash = (this.manifest != null) ? hash(path, replacement.getBytes(StandardCharsets.UTF_8)) : null;
+					this.writer.write(path, content, replacement);
+				}
 			}
+			if (!replaced) {
+				log.out(" - no replacements");
+			}
+			if (this.manifest != null && this.javadocSite.isComplete()
+					&& !this.classNameResolver.isAnyAmbiguous(lookups)) {
+				this.manifest.record(path, hash, lookups, this.javadocSite);
+			}
+			return replaced;
 		}
 		catch (IOException ex) {
 			throw new RuntimeException(ex);
 		}
+		finally {
+			recordMigration(path, replaced, System.nanoTime() - start, event);
+			log.flush();
+		}
 	}
 
-	public String replace(String content) {
-		String result = content;
-		result = replaceXrefs(result);
-		result = replaceClassNames(result);
-		return (!result.toString().equals(content)) ? result.toString() : null;
-	}
-
-	private String replaceXrefs(String content) {
-		Matcher matcher = xrefPattern.matcher(content);
-		StringBuffer result = new StringBuffer();
-		while (matcher.find()) {
-			String packageName = matcher.group(1);
-			String className = matcher.group(2);
-			String anchor = matcher.group(3);
-			String text = matcher.group(4);
-			String path = packageName.replace("/", ".") + "." + className.replace(".", "$")
-					+ ((anchor != null) ? anchor : "");
-			if (("`@" + className + "`").equals(text)) {
-				text = "format=annotation";
-			}
-			else if (("`" + className + "`").equals(text) || className.equals(text)) {
-				text = "";
-			}
-			String replacement = "javadoc:%s[%s]".formatted(path, text);
-			matcher.appendReplacement(result, replacement.replace("$", "\\$"));
-		}
-		matcher.appendTail(result);
-		return result.toString();
+	private void recordMigration(Path path, boolean replaced, long nanos, Metrics.FileMigrationEvent event) {
+		Metrics metrics = Metrics.get();
+		metrics.increment("migration.files");
+		if (replaced) {
+			metrics.increment("migration.changed");
+		}
+		metrics.record("migration.scan", nanos);
+		metrics.recordSlowest("migration.scan", path.toString(), nanos);
+		event.end();
+		if (event.shouldCommit()) {
+			event.path = path.toString();
+			event.replaced = replaced;
+			event.commit();
+		}
 	}
 
-	private String replaceClassNames(String content) {
-		Matcher matcher = classNamePattern.matcher(content);
-		StringBuffer result = new StringBuffer();
-		while (matcher.find()) {
-			String name = matcher.group(2);
-			String replacement = matcher.group();
-			if (isLikelyClassName(name)) {
-				boolean annotation = name.startsWith("@");
-				if (annotation) {
-					name = name.substring(1);
-					name = COMMON_ANNOTATION_NAMES.getOrDefault(name, name);
-				}
-				else {
-					name = COMMON_CLASS_NAMES.getOrDefault(name, name);
-				}
-				List<String> lookup = this.javadocSite.lookup(name);
-				if (lookup != null) {
-					if (lookup.size() > 1) {
-						throw new RuntimeException("Fix the ambigious " + lookup);
-					}
-					String location = lookup.get(0);
-					String prefix = matcher.group(1);
-					if (location.contains("-javadoc}")) {
-						System.err.println(">> " + name + " " + location);
+	private String hash(Path path, byte[] bytes) throws IOException {
+		return (bytes != null) ? MigrationManifest.hash(bytes) : MigrationManifest.hash(path);
+	}
+
+	/**
+	 * Rewrite the given file through a bounded buffer rather than reading it fully into
+	 * memory. The output is written to a temporary file that is handed to the
+	 * {@link MigrationWriter} if something changed. As when the file is read into memory,
+	 * malformed UTF-8 is replaced rather than failing the migration.
+	 * @param path the file to rewrite
+	 * @param log the migration log
+	 * @param lookups the names that were looked up
+	 * @return the temporary file holding the rewritten content or {@code null} if no
+	 * replacements were made
+	 * @throws IOException on IO error
+	 */
+	private Path replaceStreaming(Path path, MigrationLog log, Set<String> lookups) throws IOException {
+		Path temp = this.writer.createTempFile(path);
+		Path result = null;
+		try {
+			boolean replaced = false;
+			CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			try (Reader reader = new InputStreamReader(Files.newInputStream(path), decoder);
+					Writer writer = Files.newBufferedWriter(temp)) {
+				StringBuilder buffer = new StringBuilder(STREAMING_CHUNK_SIZE * 2);
+				char[] chunk = new char[STREAMING_CHUNK_SIZE];
+				boolean complete = false;
+				while (!complete) {
+					int read = reader.read(chunk);
+					complete = read == -1;
+					if (!complete) {
+						buffer.append(chunk, 0, read);
 					}
-					replacement = prefix
-							+ "javadoc:%s[%s]".formatted(location, (!annotation) ? "" : "format=annotation");
+					replaced |= replaceChunk(buffer, complete, writer, log, lookups);
 				}
-				else {
-					if (!name.startsWith("My")) {
-						System.err.println("No idea about " + name);
-					}
+			}
+			result = (replaced) ? temp : null;
+			return result;
+		}
+		finally {
+			if (result == null) {
+				Files.deleteIfExists(temp);
+			}
+		}
+	}
+
+	/**
+	 * Replace tokens in the buffered content, writing out and removing everything that
+	 * can no longer be affected by content that has not yet been read. A token that
+	 * could continue beyond the end of the buffer, and everything after it, is kept for
+	 * the next chunk.
+	 */
+	private boolean replaceChunk(StringBuilder buffer, boolean complete, Writer writer, MigrationLog log,
+			Set<String> lookups) throws IOException {
+		boolean replaced = false;
+		int written = 0;
+		AsciidocReferenceTokenizer tokenizer = new AsciidocReferenceTokenizer(buffer, complete);
+		AsciidocReferenceTokenizer.Token token;
+		while ((token = tokenizer.next()) != null) {
+			String replacement = replace(token, log, lookups);
+			if (replacement != null) {
+				writer.append(buffer, written, token.start()).append(replacement);
+				written = token.end();
+				replaced = true;
+			}
+		}
+		int safe = tokenizer.getResumePosition();
+		writer.append(buffer, written, safe);
+		buffer.delete(0, safe);
+		return replaced;
+	}
+
+	public String replace(String content) {
+		return replace(content, new HashSet<>());
+	}
+
+	/**
+	 * Return the migrated form of the given content, collecting the names that were
+	 * looked up.
+	 * @param content the content to migrate
+	 * @param lookups the set to add the looked up names to
+	 * @return the migrated content or {@code null} if no replacements were made
+	 */
+	String replace(String content, Set<String> lookups) {
+		MigrationLog log = new MigrationLog();
+		try {
+			return replace(content, log, lookups);
+		}
+		finally {
+			log.flush();
+		}
+	}
+
+	private String replace(String content, MigrationLog log, Set<String> lookups) {
+		AsciidocReferenceTokenizer tokenizer = new AsciidocReferenceTokenizer(content, true);
+		StringBuilder result = null;
+		int last = 0;
+		AsciidocReferenceTokenizer.Token token;
+		while ((token = tokenizer.next()) != null) {
+			String replacement = replace(token, log, lookups);
+			if (replacement != null) {
+				if (result == null) {
+					result = new StringBuilder(content.length() + 256);
 				}
+				result.append(content, last, token.start()).append(replacement);
+				last = token.end();
 			}
-			matcher.appendReplacement(result, replacement.replace("$", "\\$"));
 		}
-		matcher.appendTail(result);
+		if (result == null) {
+			return null;
+		}
+		result.append(content, last, content.length());
 		return result.toString();
 	}
 
+	private String replace(AsciidocReferenceTokenizer.Token token, MigrationLog log, Set<String> lookups) {
+		if (token instanceof AsciidocReferenceTokenizer.Xref xref) {
+			return replaceXref(xref);
+		}
+		return replaceClassName((AsciidocReferenceTokenizer.ClassName) token, log, lookups);
+	}
+
+	private String replaceXref(AsciidocReferenceTokenizer.Xref xref) {
+		String className = xref.className();
+		String anchor = xref.anchor();
+		String text = xref.text();
+		String path = xref.packagePath().replace("/", ".") + "." + className.replace(".", "$")
+				+ ((anchor != null) ? anchor : "");
+		if (("`@" + className + "`").equals(text)) {
+			text = "format=annotation";
+		}
+		else if (("`" + className + "`").equals(text) || className.equals(text)) {
+			text = "";
+		}
+		return "javadoc:%s[%s]".formatted(path, text);
+	}
+
+	private String replaceClassName(AsciidocReferenceTokenizer.ClassName className, MigrationLog log,
+			Set<String> lookups) {
+		ClassNameResolver.Resolution resolution = this.classNameResolver.resolve(className.name());
+		if (resolution.kind() == ClassNameResolver.Kind.NOT_A_CLASS) {
+			return null;
+		}
+		lookups.add(resolution.name());
+		if (resolution.kind() != ClassNameResolver.Kind.RESOLVED) {
+			return null;
+		}
+		if (resolution.location().contains("-javadoc}")) {
+			log.err(">> " + resolution.name() + " " + resolution.location());
+		}
+		return className.prefix() + resolution.replacement();
+	}
+
+	/**
+	 * Return those of the given looked up names that are ambiguous, with their targets.
+	 * @param names the looked up names
+	 * @return the ambiguous names
+	 */
+	Map<String, List<String>> getAmbiguousNames(Collection<String> names) {
+		Map<String, List<String>> ambiguous = new TreeMap<>();
+		for (String name : names) {
+			List<String> targets = this.javadocSite.lookup(name);
+			if (targets != null && targets.size() > 1) {
+				ambiguous.put(name, targets);
+			}
+		}
+		return ambiguous;
+	}
+
+	private ClassNameResolver.Resolution resolveClassName(String token) {
+		if (!isLikelyClassName(token)) {
+			return ClassNameResolver.Resolution.NOT_A_CLASS;
+		}
+		boolean annotation = token.startsWith("@");
+		String name = token;
+		if (annotation) {
+			name = name.substring(1);
+			name = COMMON_ANNOTATION_NAMES.getOrDefault(name, name);
+		}
+		else {
+			name = COMMON_CLASS_NAMES.getOrDefault(name, name);
+		}
+		List<String> lookup = this.javadocSite.lookup(name);
+		if (lookup == null) {
+			return ClassNameResolver.Resolution.unknown(name);
+		}
+		if (lookup.size() > 1) {
+			return ClassNameResolver.Resolution.ambiguous(name, lookup);
+		}
+		return ClassNameResolver.Resolution.resolved(name, lookup.get(0), annotation);
+	}
+
 	private static boolean isLikelyClassName(String name) {
 		if (name.length() <= 1 || "Dockerfile".equals(name) || "Procfile".equals(name) || "SpEL".equals(name)
 				|| "MockK".equals(name) || name.endsWith(".properties") || name.endsWith(".yaml")
@@ -206,7 +600,108 @@ public class Main {
 	}
 
 	public static void main(String[] args) throws Exception {
-		new Main().run(args);
+		Options options = Options.parse(args);
+		Log.setLevel(options.getLogLevel());
+		if (options.isServe()) {
+			new MigrationServer(options.getServerPort(), () -> createJavadocSite(options),
+					options.getAntoraSourcePath(), options.getAntoraYamlPath(), options.getJavadocSitePath())
+				.start();
+			return;
+		}
+		List<Path> mergeReportPaths = options.getMergeReportPaths();
+		if (mergeReportPaths != null) {
+			mergeReports(mergeReportPaths, options.getReportPath());
+			return;
+		}
+		if (options.getWriteMode() == MigrationWriter.Mode.DRY_RUN && options.getDiffOutputPath() == null) {
+			Log.useStandardError();
+		}
+		Recording recording = (options.getJfrPath() != null) ? Metrics.startRecording() : null;
+		try {
+			create(options).run(options.getAntoraSourcePath(), options.getShard(), options.getReportPath());
+		}
+		finally {
+			if (recording != null) {
+				recording.dump(options.getJfrPath());
+				recording.close();
+			}
+			if (options.getMetricsPath() != null) {
+				Metrics.get().write(options.getMetricsPath());
+			}
+			Log.flush();
+		}
+	}
+
+	/**
+	 * Merge the reports of the shards of a run, failing in the same way that a single run
+	 * of all files would if any name was ambiguous. It is also a failure if the report of
+	 * any shard is missing, with both problems reported together so that a missing shard
+	 * is not hidden by the ambiguous names of the others.
+	 * @param reportPaths the reports to merge
+	 * @param mergedReportPath the file to write the merged report to or {@code null}
+	 * @throws IOException on IO error
+	 */
+	private static void mergeReports(List<Path> reportPaths, Path mergedReportPath) throws IOException {
+		List<MigrationReport> reports = new ArrayList<>();
+		for (Path reportPath : reportPaths) {
+			reports.add(MigrationReport.read(reportPath));
+		}
+		MigrationReport merged = MigrationReport.merge(reports);
+		if (mergedReportPath != null) {
+			merged.write(mergedReportPath);
+		}
+		Log.info("Merged %d report(s): %d file(s) considered, %d changed".formatted(reports.size(), merged.files(),
+				merged.changed().size()));
+		if (!merged.unknown().isEmpty()) {
+			Log.info("No idea about " + merged.unknown().size() + " name(s):");
+			merged.unknown().forEach((name, count) -> Log.info("  " + name + " (" + count + ")"));
+		}
+		if (!merged.failures().isEmpty()) {
+			Log.warn("Names from " + merged.failures().size()
+					+ " javadoc source(s) that could not be indexed were left unchanged:");
+			merged.failures().forEach((failure) -> Log.warn("  " + failure));
+		}
+		List<String> problems = new ArrayList<>();
+		if (!merged.missingShards().isEmpty()) {
+			problems.add("Missing report(s) for shard(s) %s of %d".formatted(merged.missingShards(),
+					merged.shardCount()));
+		}
+		if (!merged.ambiguous().isEmpty()) {
+			StringBuilder message = new StringBuilder("Fix the ambiguous names:");
+			merged.ambiguous().forEach((name, targets) -> message.append("%n  %s %s".formatted(name, targets)));
+			problems.add(message.toString());
+		}
+		if (!problems.isEmpty()) {
+			throw new IllegalStateException(String.join(System.lineSeparator(), problems));
+		}
+	}
+
+	/**
+	 * Output for a single file, buffered so that it is logged as one group even when
+	 * files are migrated in parallel. Progress is logged at {@link Log.Level#DEBUG} and
+	 * is not collected at all unless that level is enabled.
+	 */
+	private static final class MigrationLog {
+
+		private final List<Log.Message> messages = new ArrayList<>();
+
+		void out(String message) {
+			if (Log.isEnabled(Log.Level.DEBUG)) {
+				this.messages.add(new Log.Message(Log.Level.DEBUG, message));
+			}
+		}
+
+		void err(String message) {
+			this.messages.add(new Log.Message(Log.Level.WARN, message));
+		}
+
+		void flush() {
+			if (!this.messages.isEmpty()) {
+				Log.write(this.messages);
+				this.messages.clear();
+			}
+		}
+
 	}
 
 }
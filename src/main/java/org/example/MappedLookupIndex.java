@@ -0,0 +1,273 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Read-only {@link JavadocLookup} over an exported index file that is memory-mapped
+ * rather than read. Nothing is deserialized up front, so any number of processes can
+ * share a single page-cached copy of the index at almost no startup or heap cost. The
+ * file holds the following sections, with all {@code int} values big-endian:
+ * <ul>
+ * <li>a header with the magic number, version, key count and target count</li>
+ * <li>the offset of each key in the key pool, plus the pool length</li>
+ * <li>the start of each key's target ids, plus the total number of ids</li>
+ * <li>the target ids</li>
+ * <li>the offset of each target in the target pool, plus the pool length</li>
+ * <li>the key pool, holding each key in UTF-8 in unsigned byte order</li>
+ * <li>the target pool, holding each target in UTF-8</li>
+ * </ul>
+ * Keys are found by binary search, comparing code points directly against the mapped
+ * UTF-8 bytes. Unsigned UTF-8 byte order is the same as code point order. Only the
+ * targets that are returned are decoded.
+ */
+final class MappedLookupIndex implements JavadocLookup {
+
+	private static final int MAGIC = 0x4A444958;
+
+	private static final int VERSION = 1;
+
+	private static final int HEADER_SIZE = 16;
+
+	private final MappedByteBuffer buffer;
+
+	private final int keyCount;
+
+	private final int targetCount;
+
+	private final int keyOffsets;
+
+	private final int idStarts;
+
+	private final int ids;
+
+	private final int targetOffsets;
+
+	private final int keyPool;
+
+	private final int targetPool;
+
+	private MappedLookupIndex(MappedByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			throw new IOException("Not a javadoc lookup index");
+		}
+		this.keyCount = buffer.getInt(8);
+		this.targetCount = buffer.getInt(12);
+		this.keyOffsets = HEADER_SIZE;
+		this.idStarts = this.keyOffsets + (this.keyCount + 1) * 4;
+		this.ids = this.idStarts + (this.keyCount + 1) * 4;
+		this.targetOffsets = this.ids + buffer.getInt(this.idStarts + this.keyCount * 4) * 4;
+		this.keyPool = this.targetOffsets + (this.targetCount + 1) * 4;
+		this.targetPool = this.keyPool + buffer.getInt(this.keyOffsets + this.keyCount * 4);
+		int end = this.targetPool + buffer.getInt(this.targetOffsets + this.targetCount * 4);
+		if (end != buffer.capacity()) {
+			throw new IOException("Javadoc lookup index is truncated or corrupt");
+		}
+	}
+
+	/**
+	 * Map the given index file.
+	 * @param path the index file
+	 * @return the mapped index
+	 * @throws IOException on IO error
+	 */
+	static MappedLookupIndex open(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return new MappedLookupIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Return the number of keys in the index.
+	 * @return the number of keys
+	 */
+	int size() {
+		return this.keyCount;
+	}
+
+	@Override
+	public List<String> get(CharSequence source, int start, int end) {
+		int low = 0;
+		int high = this.keyCount - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int comparison = compareKey(mid, source, start, end);
+			if (comparison < 0) {
+				low = mid + 1;
+			}
+			else if (comparison > 0) {
+				high = mid - 1;
+			}
+			else {
+				return targets(mid);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Compare the given key with the name in the given region by code point.
+	 */
+	private int compareKey(int key, CharSequence source, int start, int end) {
+		int position = this.keyPool + this.buffer.getInt(this.keyOffsets + key * 4);
+		int limit = this.keyPool + this.buffer.getInt(this.keyOffsets + key * 4 + 4);
+		int index = start;
+		while (position < limit && index < end) {
+			int keyCodePoint;
+			int b = this.buffer.get(position) & 0xFF;
+			if (b < 0x80) {
+				keyCodePoint = b;
+				position++;
+			}
+			else if (b < 0xE0) {
+				keyCodePoint = ((b & 0x1F) << 6) | (this.buffer.get(position + 1) & 0x3F);
+				position += 2;
+			}
+			else if (b < 0xF0) {
+				keyCodePoint = ((b & 0x0F) << 12) | ((this.buffer.get(position + 1) & 0x3F) << 6)
+						| (this.buffer.get(position + 2) & 0x3F);
+				position += 3;
+			}
+			else {
+				keyCodePoint = ((b & 0x07) << 18) | ((this.buffer.get(position + 1) & 0x3F) << 12)
+						| ((this.buffer.get(position + 2) & 0x3F) << 6) | (this.buffer.get(position + 3) & 0x3F);
+				position += 4;
+			}
+			int codePoint = codePointAt(source, index, end);
+			if (keyCodePoint != codePoint) {
+				return Integer.compare(keyCodePoint, codePoint);
+			}
+			index += Character.charCount(codePoint);
+		}
+		return Boolean.compare(position < limit, index < end);
+	}
+
+	private static int codePointAt(CharSequence source, int index, int end) {
+		char high = source.charAt(index);
+		if (Character.isHighSurrogate(high) && index + 1 < end) {
+			char low = source.charAt(index + 1);
+			if (Character.isLowSurrogate(low)) {
+				return Character.toCodePoint(high, low);
+			}
+		}
+		return high;
+	}
+
+	private List<String> targets(int key) {
+		int from = this.buffer.getInt(this.idStarts + key * 4);
+		int to = this.buffer.getInt(this.idStarts + key * 4 + 4);
+		if (to - from == 1) {
+			return Collections.singletonList(target(this.buffer.getInt(this.ids + from * 4)));
+		}
+		List<String> targets = new ArrayList<>(to - from);
+		for (int i = from; i < to; i++) {
+			targets.add(target(this.buffer.getInt(this.ids + i * 4)));
+		}
+		return targets;
+	}
+
+	private String target(int id) {
+		int offset = this.buffer.getInt(this.targetOffsets + id * 4);
+		byte[] bytes = new byte[this.buffer.getInt(this.targetOffsets + id * 4 + 4) - offset];
+		this.buffer.get(this.targetPool + offset, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Export the given lookup table as an index file. The file is written to a temporary
+	 * file that is then atomically moved into place so that processes mapping the
+	 * previous index are not affected.
+	 * @param path the index file
+	 * @param lookup the lookup table
+	 * @throws IOException on IO error
+	 */
+	static void write(Path path, LookupTable lookup) throws IOException {
+		List<Key> keys = new ArrayList<>(lookup.size());
+		lookup.forEachKey((key, ids) -> keys.add(new Key(key.getBytes(StandardCharsets.UTF_8), ids.clone())));
+		keys.sort((left, right) -> Arrays.compareUnsigned(left.bytes(), right.bytes()));
+		List<byte[]> targets = new ArrayList<>();
+		for (String target : lookup.getTargets()) {
+			targets.add(target.getBytes(StandardCharsets.UTF_8));
+		}
+		Path directory = path.toAbsolutePath().getParent();
+		Files.createDirectories(directory);
+		Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+		try {
+			try (OutputStream outputStream = Files.newOutputStream(temp);
+					DataOutputStream output = new DataOutputStream(new BufferedOutputStream(outputStream))) {
+				output.writeInt(MAGIC);
+				output.writeInt(VERSION);
+				output.writeInt(keys.size());
+				output.writeInt(targets.size());
+				int offset = 0;
+				for (Key key : keys) {
+					output.writeInt(offset);
+					offset += key.bytes().length;
+				}
+				output.writeInt(offset);
+				int idCount = 0;
+				for (Key key : keys) {
+					output.writeInt(idCount);
+					idCount += key.ids().length;
+				}
+				output.writeInt(idCount);
+				for (Key key : keys) {
+					for (int id : key.ids()) {
+						output.writeInt(id);
+					}
+				}
+				offset = 0;
+				for (byte[] target : targets) {
+					output.writeInt(offset);
+					offset += target.length;
+				}
+				output.writeInt(offset);
+				for (Key key : keys) {
+					output.write(key.bytes());
+				}
+				for (byte[] target : targets) {
+					output.write(target);
+				}
+			}
+			Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private record Key(byte[] bytes, int[] ids) {
+
+	}
+
+}
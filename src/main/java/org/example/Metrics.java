@@ -0,0 +1,307 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+
+/**
+ * Counters and timers for a run, written as a JSON summary at the end. Names are dot
+ * separated with the most general part first, for example {@code fetch.latency.<host>}.
+ * Counters that are updated for every token should be obtained once using
+ * {@link #counter(String)} rather than being looked up each time. Timers are aggregates,
+ * so per-item durations such as those of each file are tracked with
+ * {@link #recordSlowest(String, String, long)}, which only keeps the slowest items.
+ * <p>
+ * The fetch, index and migration events are also available as JFR events. They cost
+ * nothing unless a recording is running, either one started with
+ * {@code -XX:StartFlightRecording} or the one started by {@link #startRecording()}.
+ */
+final class Metrics {
+
+	private static final Metrics instance = new Metrics();
+
+	private static final int SLOWEST_COUNT = 10;
+
+	private static final ObjectMapper objectMapper = new ObjectMapper()
+		.enable(SerializationFeature.INDENT_OUTPUT);
+
+	private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+	private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+	private final Map<String, Slowest> slowest = new ConcurrentHashMap<>();
+
+	private Metrics() {
+	}
+
+	static Metrics get() {
+		return instance;
+	}
+
+	/**
+	 * Return the counter with the given name, creating it if necessary.
+	 * @param name the counter name
+	 * @return the counter
+	 */
+	LongAdder counter(String name) {
+		return this.counters.computeIfAbsent(name, (key) -> new LongAdder());
+	}
+
+	void increment(String name) {
+		counter(name).increment();
+	}
+
+	void add(String name, long amount) {
+		counter(name).add(amount);
+	}
+
+	/**
+	 * Record a duration against the timer with the given name.
+	 * @param name the timer name
+	 * @param nanos the duration in nanoseconds
+	 */
+	void record(String name, long nanos) {
+		this.timers.computeIfAbsent(name, (key) -> new Timer()).record(nanos);
+	}
+
+	/**
+	 * Record the duration of an item, such as a file, keeping only the
+	 * {@value #SLOWEST_COUNT} slowest items for each name.
+	 * @param name the name
+	 * @param item the item
+	 * @param nanos the duration in nanoseconds
+	 */
+	void recordSlowest(String name, String item, long nanos) {
+		this.slowest.computeIfAbsent(name, (key) -> new Slowest()).record(item, nanos);
+	}
+
+	/**
+	 * Return a snapshot of the current values with names in sorted order.
+	 * @return the summary
+	 */
+	Summary summary() {
+		Map<String, Long> counters = new TreeMap<>();
+		this.counters.forEach((name, counter) -> counters.put(name, counter.sum()));
+		Map<String, TimerSummary> timers = new TreeMap<>();
+		this.timers.forEach((name, timer) -> timers.put(name, timer.summary()));
+		Map<String, List<ItemSummary>> slowest = new TreeMap<>();
+		this.slowest.forEach((name, items) -> slowest.put(name, items.summary()));
+		return new Summary(counters, timers, slowest);
+	}
+
+	/**
+	 * Write the {@link #summary()} to the given file as JSON.
+	 * @param path the file to write
+	 * @throws IOException on IO error
+	 */
+	void write(Path path) throws IOException {
+		Path parent = path.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		objectMapper.writeValue(path.toFile(), summary());
+	}
+
+	/**
+	 * Start a JFR recording of the events of this class.
+	 * @return the recording, which should be dumped and closed at the end of the run
+	 */
+	static Recording startRecording() {
+		Recording recording = new Recording();
+		recording.setName("javadoc-migration");
+		recording.enable(FetchEvent.class);
+		recording.enable(IndexSourceEvent.class);
+		recording.enable(FileMigrationEvent.class);
+		recording.start();
+		return recording;
+	}
+
+	private static double millis(long nanos) {
+		return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	/**
+	 * A timer that tracks the count, total and maximum of the recorded durations.
+	 */
+	private static final class Timer {
+
+		private final LongAdder count = new LongAdder();
+
+		private final LongAdder total = new LongAdder();
+
+		private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+		void record(long nanos) {
+			this.count.increment();
+			this.total.add(nanos);
+			this.max.accumulate(nanos);
+		}
+
+		TimerSummary summary() {
+			long count = this.count.sum();
+			long total = this.total.sum();
+			return new TimerSummary(count, millis(total), (count != 0) ? millis(total) / count : 0.0,
+					millis(this.max.get()));
+		}
+
+	}
+
+	/**
+	 * The slowest items recorded against a name. Durations that are no slower than the
+	 * fastest item held once the list is full are rejected without taking the lock.
+	 */
+	private static final class Slowest {
+
+		private final PriorityQueue<Item> items = new PriorityQueue<>(Comparator.comparingLong(Item::nanos));
+
+		private volatile long threshold = Long.MIN_VALUE;
+
+		void record(String item, long nanos) {
+			if (nanos <= this.threshold) {
+				return;
+			}
+			synchronized (this) {
+				this.items.add(new Item(item, nanos));
+				if (this.items.size() > SLOWEST_COUNT) {
+					this.items.poll();
+				}
+				if (this.items.size() == SLOWEST_COUNT) {
+					this.threshold = this.items.peek().nanos();
+				}
+			}
+		}
+
+		synchronized List<ItemSummary> summary() {
+			List<Item> items = new ArrayList<>(this.items);
+			items.sort(Comparator.comparingLong(Item::nanos).reversed());
+			return items.stream().map((item) -> new ItemSummary(item.item(), millis(item.nanos()))).toList();
+		}
+
+		private record Item(String item, long nanos) {
+
+		}
+
+	}
+
+	/**
+	 * The values of all counters and timers.
+	 *
+	 * @param counters the counter values
+	 * @param timers the timer values
+	 * @param slowest the slowest items, slowest first
+	 */
+	record Summary(Map<String, Long> counters, Map<String, TimerSummary> timers,
+			Map<String, List<ItemSummary>> slowest) {
+
+	}
+
+	/**
+	 * The values of a timer.
+	 *
+	 * @param count the number of recorded durations
+	 * @param totalMillis the total duration in milliseconds
+	 * @param meanMillis the mean duration in milliseconds
+	 * @param maxMillis the maximum duration in milliseconds
+	 */
+	record TimerSummary(long count, double totalMillis, double meanMillis, double maxMillis) {
+
+	}
+
+	/**
+	 * The duration of an item.
+	 *
+	 * @param item the item
+	 * @param millis the duration in milliseconds
+	 */
+	record ItemSummary(String item, double millis) {
+
+	}
+
+	/**
+	 * JFR event for a network request made by the {@link JavadocFetcher}.
+	 */
+	@Name("org.example.Fetch")
+	@Label("Javadoc Fetch")
+	@Category("Javadoc Migration")
+	static class FetchEvent extends Event {
+
+		@Label("URL")
+		String url;
+
+		@Label("Status")
+		int status;
+
+		@Label("Bytes")
+		@DataAmount
+		long bytes;
+
+	}
+
+	/**
+	 * JFR event for the types indexed from a single javadoc source.
+	 */
+	@Name("org.example.IndexSource")
+	@Label("Javadoc Index Source")
+	@Category("Javadoc Migration")
+	static class IndexSourceEvent extends Event {
+
+		@Label("Source")
+		String source;
+
+		@Label("Types")
+		int types;
+
+	}
+
+	/**
+	 * JFR event for the migration of a single file.
+	 */
+	@Name("org.example.FileMigration")
+	@Label("File Migration")
+	@Category("Javadoc Migration")
+	static class FileMigrationEvent extends Event {
+
+		@Label("Path")
+		String path;
+
+		@Label("Replaced")
+		boolean replaced;
+
+	}
+
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Manifest of the files processed by earlier runs, used to skip files that have not
+ * changed. Each entry records the hash of the file as it was left and the lookup result
+ * for every name that it referenced. A file is only processed again if its content has
+ * changed or, when the javadoc inputs have changed, if any of those lookups now give a
+ * different result.
+ */
+class MigrationManifest {
+
+	private static final int VERSION = 1;
+
+	private static final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final Path path;
+
+	private final String fingerprint;
+
+	private final boolean sameInputs;
+
+	private final Map<String, FileEntry> previous;
+
+	private final Map<String, FileEntry> current = new ConcurrentHashMap<>();
+
+	private MigrationManifest(Path path, String fingerprint, boolean sameInputs, Map<String, FileEntry> previous) {
+		this.path = path;
+		this.fingerprint = fingerprint;
+		this.sameInputs = sameInputs;
+		this.previous = previous;
+	}
+
+	/**
+	 * Return if the given file can be skipped.
+	 * @param file the file
+	 * @param hash the hash of its current content
+	 * @param javadocSite the javadoc site that would be used to migrate it
+	 * @return if the file is unchanged since the last run
+	 */
+	boolean isUnchanged(Path file, String hash, JavadocSite javadocSite) {
+		String key = key(file);
+		FileEntry entry = this.previous.get(key);
+		if (entry == null || !entry.hash().equals(hash)) {
+			return false;
+		}
+		if (!this.sameInputs) {
+			for (Map.Entry<String, List<String>> lookup : entry.lookups().entrySet()) {
+				if (!Objects.equals(javadocSite.lookup(lookup.getKey()), lookup.getValue())) {
+					return false;
+				}
+			}
+		}
+		this.current.put(key, entry);
+		return true;
+	}
+
+	/**
+	 * Record that the given file has been processed.
+	 * @param file the file
+	 * @param hash the hash of the content that was left in the file
+	 * @param names the names that were looked up
+	 * @param javadocSite the javadoc site used for the lookups
+	 */
+	void record(Path file, String hash, Set<String> names, JavadocSite javadocSite) {
+		Map<String, List<String>> lookups = new TreeMap<>();
+		for (String name : names) {
+			lookups.put(name, javadocSite.lookup(name));
+		}
+		this.current.put(key(file), new FileEntry(hash, lookups));
+	}
+
+	void save() throws IOException {
+		Map<String, FileEntry> files = new TreeMap<>();
+		this.previous.forEach((key, entry) -> {
+			if (Files.exists(Path.of(key))) {
+				files.put(key, entry);
+			}
+		});
+		files.putAll(this.current);
+		Files.createDirectories(this.path.toAbsolutePath().getParent());
+		Path temp = Files.createTempFile(this.path.toAbsolutePath().getParent(), "manifest", ".tmp");
+		try {
+			objectMapper.writeValue(temp.toFile(), new Manifest(VERSION, this.fingerprint, files));
+			Files.move(temp, this.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private String key(Path file) {
+		return file.toAbsolutePath().normalize().toString();
+	}
+
+	static MigrationManifest load(Path path, String fingerprint) throws IOException {
+		if (Files.exists(path)) {
+			Manifest manifest = objectMapper.readValue(path.toFile(), Manifest.class);
+			if (manifest.version() == VERSION) {
+				return new MigrationManifest(path, fingerprint, fingerprint.equals(manifest.fingerprint()),
+						new HashMap<>(manifest.files()));
+			}
+		}
+		return new MigrationManifest(path, fingerprint, false, new HashMap<>());
+	}
+
+	static String hash(byte[] content) {
+		MessageDigest digest = digest();
+		return HexFormat.of().formatHex(digest.digest(content));
+	}
+
+	static String hash(Path file) throws IOException {
+		MessageDigest digest = digest();
+		try (InputStream input = Files.newInputStream(file)) {
+			byte[] buffer = new byte[64 * 1024];
+			int read;
+			while ((read = input.read(buffer)) != -1) {
+				digest.update(buffer, 0, read);
+			}
+		}
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	private static MessageDigest digest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	record Manifest(int version, String fingerprint, Map<String, FileEntry> files) {
+
+	}
+
+	record FileEntry(String hash, Map<String, List<String>> lookups) {
+
+	}
+
+}
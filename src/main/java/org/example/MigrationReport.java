@@ -0,0 +1,144 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Report of the outcome of migrating one or more shards. Each shard writes its own report
+ * and the reports of all shards can then be merged to check the run as a whole, in the
+ * same way as a run that is not split. Files are named relative to the Antora source
+ * directory.
+ *
+ * @param version the report format version
+ * @param shardCount the total number of shards
+ * @param strategy the strategy used to assign files to shards
+ * @param shards the one-based indexes of the shards that are included
+ * @param files the number of files that were considered
+ * @param changed the files that were, or for a dry run would have been, changed
+ * @param unknown the names that are not known to the javadoc site, with their number of
+ * occurrences
+ * @param ambiguous the names that match more than one class, with their targets
+ * @param failures the javadoc sources that could not be indexed
+ */
+record MigrationReport(int version, int shardCount, Shard.Strategy strategy, List<Integer> shards, int files,
+		List<String> changed, Map<String, Long> unknown, Map<String, List<String>> ambiguous,
+		List<String> failures) {
+
+	private static final int VERSION = 1;
+
+	private static final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+	MigrationReport(Shard shard, int files, List<String> changed, Map<String, Long> unknown,
+			Map<String, List<String>> ambiguous, List<String> failures) {
+		this(VERSION, shard.count(), shard.strategy(), List.of(shard.index()), files,
+				List.copyOf(new TreeSet<>(changed)), new TreeMap<>(unknown), new TreeMap<>(ambiguous),
+				List.copyOf(new TreeSet<>(failures)));
+	}
+
+	/**
+	 * Return the indexes of the shards that are not included in this report.
+	 * @return the missing shards
+	 */
+	List<Integer> missingShards() {
+		List<Integer> missing = new ArrayList<>();
+		for (int i = 1; i <= this.shardCount; i++) {
+			if (!this.shards.contains(i)) {
+				missing.add(i);
+			}
+		}
+		return missing;
+	}
+
+	/**
+	 * Write this report as JSON.
+	 * @param path the file to write
+	 * @throws IOException on IO error
+	 */
+	void write(Path path) throws IOException {
+		Path directory = path.toAbsolutePath().getParent();
+		Files.createDirectories(directory);
+		Path temp = Files.createTempFile(directory, "report", ".tmp");
+		try {
+			objectMapper.writeValue(temp.toFile(), this);
+			Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	static MigrationReport read(Path path) throws IOException {
+		MigrationReport report = objectMapper.readValue(path.toFile(), MigrationReport.class);
+		if (report.version() != VERSION) {
+			throw new IOException("Unsupported report version " + report.version() + " in " + path);
+		}
+		return report;
+	}
+
+	/**
+	 * Merge reports of shards of the same run. Occurrences of unknown names are added
+	 * together and every other entry is combined.
+	 * @param reports the reports to merge
+	 * @return the merged report
+	 * @throws IllegalStateException if the reports are not from the same run or if a
+	 * shard is included more than once
+	 */
+	static MigrationReport merge(List<MigrationReport> reports) {
+		if (reports.isEmpty()) {
+			throw new IllegalStateException("No reports to merge");
+		}
+		MigrationReport first = reports.get(0);
+		TreeSet<Integer> shards = new TreeSet<>();
+		int files = 0;
+		TreeSet<String> changed = new TreeSet<>();
+		Map<String, Long> unknown = new TreeMap<>();
+		Map<String, List<String>> ambiguous = new TreeMap<>();
+		TreeSet<String> failures = new TreeSet<>();
+		for (MigrationReport report : reports) {
+			if (report.shardCount() != first.shardCount() || report.strategy() != first.strategy()) {
+				throw new IllegalStateException("Reports for %d %s shards and %d %s shards cannot be merged".formatted(
+						first.shardCount(), first.strategy(), report.shardCount(), report.strategy()));
+			}
+			for (int shard : report.shards()) {
+				if (!shards.add(shard)) {
+					throw new IllegalStateException(
+							"Shard %d/%d is included in more than one report".formatted(shard, first.shardCount()));
+				}
+			}
+			files += report.files();
+			changed.addAll(report.changed());
+			report.unknown().forEach((name, count) -> unknown.merge(name, count, Long::sum));
+			report.ambiguous().forEach(ambiguous::putIfAbsent);
+			failures.addAll(report.failures());
+		}
+		return new MigrationReport(VERSION, first.shardCount(), first.strategy(), List.copyOf(shards), files,
+				List.copyOf(changed), unknown, ambiguous, List.copyOf(failures));
+	}
+
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Resident server that builds the {@link JavadocSite} once and serves requests from a
+ * localhost HTTP endpoint. The {@code antora.yml} file and the javadoc site are watched
+ * and the site is rebuilt in the background when they change, with requests continuing
+ * to use the previous site until the new one is ready. The following endpoints are
+ * available:
+ * <ul>
+ * <li>{@code GET /resolve?name=...} to resolve a class name</li>
+ * <li>{@code POST /migrate?path=...} to migrate an {@code .adoc} file under the Antora
+ * source directory in place</li>
+ * <li>{@code POST /replace} to return the migrated form of the request body</li>
+ * </ul>
+ * Ambiguous names are left in place and reported for each request, in the JSON response
+ * of {@code /migrate} and in the {@value #AMBIGUOUS_NAMES_HEADER} header of
+ * {@code /replace}.
+ * {@code POST} requests must have an {@value #CLIENT_HEADER} header so that a web page
+ * cannot use the browser to forge them without a CORS preflight, which the server never
+ * allows.
+ */
+class MigrationServer {
+
+	private static final ObjectMapper objectMapper = new ObjectMapper();
+
+	private static final long QUIET_PERIOD = TimeUnit.SECONDS.toMillis(2);
+
+	static final String CLIENT_HEADER = "X-Migration-Client";
+
+	static final String AMBIGUOUS_NAMES_HEADER = "X-Ambiguous-Names";
+
+	private final int port;
+
+	private final Callable<JavadocSite> javadocSiteFactory;
+
+	private final Path antoraSourcePath;
+
+	private final Path antoraYamlPath;
+
+	private final Path javadocSitePath;
+
+	private volatile Migrator migrator;
+
+	MigrationServer(int port, Callable<JavadocSite> javadocSiteFactory, Path antoraSourcePath, Path antoraYamlPath,
+			Path javadocSitePath) {
+		this.port = port;
+		this.javadocSiteFactory = javadocSiteFactory;
+		this.antoraSourcePath = antoraSourcePath.toAbsolutePath().normalize();
+		this.antoraYamlPath = antoraYamlPath.toAbsolutePath();
+		this.javadocSitePath = javadocSitePath.toAbsolutePath();
+	}
+
+	void start() throws Exception {
+		use(this.javadocSiteFactory.call());
+		HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), this.port), 0);
+		server.createContext("/resolve", (exchange) -> handle(exchange, "GET", this::resolve));
+		server.createContext("/migrate", (exchange) -> handle(exchange, "POST", this::migrate));
+		server.createContext("/replace", (exchange) -> handle(exchange, "POST", this::replace));
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+		Thread watcher = new Thread(this::watch, "javadoc-site-watcher");
+		watcher.setDaemon(true);
+		watcher.start();
+		Log.info("listening on http://localhost:" + server.getAddress().getPort());
+	}
+
+	private void use(JavadocSite javadocSite) {
+		this.migrator = new Migrator(javadocSite, Main.forRequests(javadocSite));
+	}
+
+	private void handle(HttpExchange exchange, String method, Handler handler) throws IOException {
+		try (exchange) {
+			if (!method.equals(exchange.getRequestMethod())) {
+				send(exchange, new Response(405, "text/plain", ("Use " + method).getBytes(StandardCharsets.UTF_8)));
+				return;
+			}
+			if ("POST".equals(method) && exchange.getRequestHeaders().getFirst(CLIENT_HEADER) == null) {
+				send(exchange, new Response(403, "text/plain",
+						("Missing '" + CLIENT_HEADER + "' header").getBytes(StandardCharsets.UTF_8)));
+				return;
+			}
+			Response response;
+			try {
+				response = handler.handle(exchange, parameters(exchange));
+			}
+			catch (IllegalArgumentException ex) {
+				response = new Response(400, "text/plain",
+						String.valueOf(ex.getMessage()).getBytes(StandardCharsets.UTF_8));
+			}
+			catch (Exception ex) {
+				response = new Response(500, "text/plain", String.valueOf(ex).getBytes(StandardCharsets.UTF_8));
+			}
+			send(exchange, response);
+		}
+		finally {
+			Log.flush();
+		}
+	}
+
+	private void send(HttpExchange exchange, Response response) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", response.contentType() + "; charset=utf-8");
+		response.headers().forEach(exchange.getResponseHeaders()::set);
+		byte[] body = response.body();
+		exchange.sendResponseHeaders(response.status(), (body.length != 0) ? body.length : -1);
+		try (OutputStream output = exchange.getResponseBody()) {
+			output.write(body);
+		}
+	}
+
+	private Map<String, String> parameters(HttpExchange exchange) {
+		Map<String, String> parameters = new HashMap<>();
+		String query = exchange.getRequestURI().getRawQuery();
+		if (query != null) {
+			for (String parameter : query.split("&")) {
+				int equals = parameter.indexOf('=');
+				String name = (equals != -1) ? parameter.substring(0, equals) : parameter;
+				String value = (equals != -1) ? parameter.substring(equals + 1) : "";
+				parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+						URLDecoder.decode(value, StandardCharsets.UTF_8));
+			}
+		}
+		return parameters;
+	}
+
+	private Response resolve(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+		String name = required(parameters, "name");
+		return json(new Resolution(name, this.migrator.javadocSite().lookup(name)));
+	}
+
+	/**
+	 * Migrate the file at the given path, resolved against the Antora source directory
+	 * if it is relative. Paths that are outside that directory once normalized, or once
+	 * any symbolic links are followed, are rejected.
+	 */
+	private Response migrate(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+		Path path = this.antoraSourcePath.resolve(required(parameters, "path")).normalize();
+		if (!path.startsWith(this.antoraSourcePath)) {
+			throw new IllegalArgumentException("Not under " + this.antoraSourcePath + ": " + path);
+		}
+		if (!Main.adocMatcher.matches(path) || !Files.isRegularFile(path)) {
+			throw new IllegalArgumentException("Not an .adoc file: " + path);
+		}
+		if (!path.toRealPath().startsWith(this.antoraSourcePath.toRealPath())) {
+			throw new IllegalArgumentException("Not under " + this.antoraSourcePath + ": " + path.toRealPath());
+		}
+		Main main = this.migrator.main();
+		Set<String> lookups = new HashSet<>();
+		boolean replaced = main.migrateFile(path, lookups);
+		return json(new Migration(path.toString(), replaced, main.getAmbiguousNames(lookups)));
+	}
+
+	private Response replace(HttpExchange exchange, Map<String, String> parameters) throws IOException {
+		String content;
+		try (InputStream input = exchange.getRequestBody()) {
+			content = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+		}
+		Main main = this.migrator.main();
+		Set<String> lookups = new HashSet<>();
+		String replacement = main.replace(content, lookups);
+		Set<String> ambiguous = main.getAmbiguousNames(lookups).keySet();
+		return new Response(200, "text/plain",
+				((replacement != null) ? replacement : content).getBytes(StandardCharsets.UTF_8),
+				(!ambiguous.isEmpty()) ? Map.of(AMBIGUOUS_NAMES_HEADER, String.join(", ", ambiguous)) : Map.of());
+	}
+
+	private String required(Map<String, String> parameters, String name) {
+		String value = parameters.get(name);
+		if (value == null || value.isEmpty()) {
+			throw new IllegalArgumentException("Missing '" + name + "' parameter");
+		}
+		return value;
+	}
+
+	private Response json(Object value) throws IOException {
+		return new Response(200, "application/json", objectMapper.writeValueAsBytes(value));
+	}
+
+	private void watch() {
+		try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+			register(watchService, this.antoraYamlPath.getParent());
+			registerAll(watchService, this.javadocSitePath);
+			while (true) {
+				WatchKey key = watchService.take();
+				boolean changed = false;
+				while (key != null) {
+					changed |= processEvents(watchService, key);
+					key = watchService.poll(QUIET_PERIOD, TimeUnit.MILLISECONDS);
+				}
+				if (changed) {
+					rebuild();
+				}
+			}
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+		catch (IOException ex) {
+			Log.error("Unable to watch for changes: " + ex);
+		}
+	}
+
+	private boolean processEvents(WatchService watchService, WatchKey key) throws IOException {
+		Path directory = (Path) key.watchable();
+		boolean changed = false;
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				changed = true;
+				continue;
+			}
+			Path path = directory.resolve((Path) event.context());
+			if (path.startsWith(this.javadocSitePath)) {
+				changed = true;
+				if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+					registerAll(watchService, path);
+				}
+			}
+			else if (path.equals(this.antoraYamlPath)) {
+				changed = true;
+			}
+		}
+		key.reset();
+		return changed;
+	}
+
+	private void rebuild() {
+		Log.info("rebuilding javadoc site");
+		try {
+			use(this.javadocSiteFactory.call());
+			Log.info("rebuilt javadoc site");
+		}
+		catch (Exception ex) {
+			Log.error("Unable to rebuild javadoc site, keeping previous: " + ex);
+		}
+	}
+
+	private void registerAll(WatchService watchService, Path root) throws IOException {
+		Files.walkFileTree(root, new SimpleFileVisitor<>() {
+
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				register(watchService, dir);
+				return FileVisitResult.CONTINUE;
+			}
+
+		});
+	}
+
+	private void register(WatchService watchService, Path directory) throws IOException {
+		directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+				StandardWatchEventKinds.ENTRY_MODIFY);
+	}
+
+	@FunctionalInterface
+	private interface Handler {
+
+		Response handle(HttpExchange exchange, Map<String, String> parameters) throws IOException;
+
+	}
+
+	private record Response(int status, String contentType, byte[] body, Map<String, String> headers) {
+
+		Response(int status, String contentType, byte[] body) {
+			this(status, contentType, body, Map.of());
+		}
+
+	}
+
+	/**
+	 * The site and the {@link Main} that uses it, published together so that a request
+	 * never sees one from before a rebuild and the other from after it.
+	 */
+	private record Migrator(JavadocSite javadocSite, Main main) {
+
+	}
+
+	record Resolution(String name, List<String> targets) {
+
+	}
+
+	record Migration(String path, boolean replaced, Map<String, List<String>> ambiguous) {
+
+	}
+
+}
@@ -0,0 +1,325 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Writes migrated content back to its files. Content is always written to a temporary
+ * file alongside the original, forced to disk and then atomically moved over it, so a
+ * file is never left partially written. Depending on the {@link Mode}, the move happens
+ * straight away, is staged until {@link #commit()} is called at the end of a successful
+ * run, or is replaced by a unified diff.
+ */
+class MigrationWriter {
+
+	private final Mode mode;
+
+	private final Path base;
+
+	private final PrintStream diffOutput;
+
+	private final Map<Path, Path> staged = new ConcurrentSkipListMap<>();
+
+	private final Map<String, UnifiedDiff.Diff> diffStats = new ConcurrentSkipListMap<>();
+
+	private volatile boolean committed;
+
+	/**
+	 * Create a new writer.
+	 * @param mode the mode
+	 * @param base the directory that diff labels are relative to or {@code null}
+	 * @param diffOutput the output for {@link Mode#DRY_RUN} diffs or {@code null}
+	 */
+	MigrationWriter(Mode mode, Path base, PrintStream diffOutput) {
+		this.mode = mode;
+		this.base = (base != null) ? base.toAbsolutePath().normalize() : null;
+		this.diffOutput = diffOutput;
+	}
+
+	static MigrationWriter immediate() {
+		return new MigrationWriter(Mode.IMMEDIATE, null, null);
+	}
+
+	/**
+	 * Write the migrated content of a file.
+	 * @param path the file
+	 * @param original the content that was migrated
+	 * @param replacement the migrated content
+	 * @throws IOException on IO error
+	 */
+	void write(Path path, String original, String replacement) throws IOException {
+		if (this.mode == Mode.DRY_RUN) {
+			diff(path, original, replacement);
+			return;
+		}
+		Path temp = createTempFile(path);
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+			ByteBuffer buffer = ByteBuffer.wrap(replacement.getBytes(StandardCharsets.UTF_8));
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(true);
+		}
+		catch (IOException ex) {
+			Files.deleteIfExists(temp);
+			throw ex;
+		}
+		apply(path, temp);
+	}
+
+	/**
+	 * Write the migrated content of a file that has already been written to a temporary
+	 * file created by {@link #createTempFile(Path)}. The temporary file is always either
+	 * moved or deleted. In {@link Mode#DRY_RUN} both files are decoded leniently, as
+	 * streamed migration does, so that a malformed byte does not fail the diff.
+	 * @param path the file
+	 * @param temp the temporary file holding the migrated content
+	 * @throws IOException on IO error
+	 */
+	void write(Path path, Path temp) throws IOException {
+		try {
+			if (this.mode == Mode.DRY_RUN) {
+				diff(path, readString(path), readString(temp));
+				Files.delete(temp);
+				return;
+			}
+			try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+				channel.force(true);
+			}
+		}
+		catch (IOException ex) {
+			Files.deleteIfExists(temp);
+			throw ex;
+		}
+		apply(path, temp);
+	}
+
+	/**
+	 * Read the given file, replacing malformed input rather than failing. The file is
+	 * mapped so that its bytes are not copied onto the heap next to the decoded text.
+	 */
+	private static String readString(Path path) throws IOException {
+		CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return decoder.decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())).toString();
+		}
+	}
+
+	/**
+	 * Create a temporary file in the same directory as the given file so that it can be
+	 * atomically moved over it.
+	 * @param path the file
+	 * @return the temporary file
+	 * @throws IOException on IO error
+	 */
+	Path createTempFile(Path path) throws IOException {
+		return Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+	}
+
+	/**
+	 * Copy the POSIX attributes of a file to its temporary file, which is created
+	 * readable and writable only by its owner, so that they are kept when it is moved
+	 * over the file. The owner and group are set first since changing them
+	 * can clear permission bits. Only a privileged user can give a file away, so a
+	 * failure to do that is ignored. File systems without POSIX attributes are left to
+	 * apply their own defaults.
+	 */
+	private static void copyAttributes(Path path, Path temp) throws IOException {
+		PosixFileAttributeView view = Files.getFileAttributeView(path, PosixFileAttributeView.class);
+		if (view == null || !Files.exists(path)) {
+			return;
+		}
+		PosixFileAttributes attributes = view.readAttributes();
+		PosixFileAttributeView tempView = Files.getFileAttributeView(temp, PosixFileAttributeView.class);
+		PosixFileAttributes tempAttributes = tempView.readAttributes();
+		try {
+			if (!attributes.owner().equals(tempAttributes.owner())) {
+				tempView.setOwner(attributes.owner());
+			}
+			if (!attributes.group().equals(tempAttributes.group())) {
+				tempView.setGroup(attributes.group());
+			}
+		}
+		catch (IOException ex) {
+			Log.debug("Unable to copy the owner or group of " + path + ": " + ex);
+		}
+		tempView.setPermissions(attributes.permissions());
+	}
+
+	/**
+	 * Move or stage a temporary file that holds the complete migrated content. The
+	 * attributes of the original are copied once the content has been written so that a
+	 * read-only original does not prevent the temporary file from being written.
+	 */
+	private void apply(Path path, Path temp) throws IOException {
+		try {
+			copyAttributes(path, temp);
+		}
+		catch (IOException ex) {
+			Files.deleteIfExists(temp);
+			throw ex;
+		}
+		if (this.mode == Mode.BATCH) {
+			Path previous = this.staged.put(path.toAbsolutePath().normalize(), temp);
+			if (previous != null) {
+				Files.deleteIfExists(previous);
+			}
+			return;
+		}
+		move(temp, path);
+	}
+
+	private void move(Path temp, Path path) throws IOException {
+		try {
+			Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	private void diff(Path path, String original, String replacement) {
+		String label = label(path);
+		UnifiedDiff.Diff diff = UnifiedDiff.diff(label, original, replacement);
+		this.diffStats.put(label, diff);
+		synchronized (this.diffOutput) {
+			this.diffOutput.print(diff.text());
+			this.diffOutput.flush();
+		}
+	}
+
+	private String label(Path path) {
+		Path absolute = path.toAbsolutePath().normalize();
+		Path relative = (this.base != null && absolute.startsWith(this.base)) ? this.base.relativize(absolute)
+				: absolute;
+		return relative.toString().replace('\\', '/');
+	}
+
+	/**
+	 * Complete a successful run by moving every staged file into place and logging a
+	 * summary. Each file is moved atomically, in path order.
+	 * @throws IOException if any file could not be moved
+	 */
+	void commit() throws IOException {
+		if (this.mode == Mode.BATCH) {
+			List<Path> failed = new ArrayList<>();
+			IOException failure = null;
+			for (Map.Entry<Path, Path> entry : this.staged.entrySet()) {
+				try {
+					move(entry.getValue(), entry.getKey());
+				}
+				catch (IOException ex) {
+					failed.add(entry.getKey());
+					failure = (failure != null) ? failure : ex;
+				}
+			}
+			int moved = this.staged.size() - failed.size();
+			this.staged.clear();
+			if (failure != null) {
+				throw new IOException("Committed %d file(s) but failed to move %s".formatted(moved, failed), failure);
+			}
+			Log.info("Committed " + moved + " file(s)");
+		}
+		if (this.mode == Mode.DRY_RUN) {
+			logDiffStats();
+		}
+		this.committed = true;
+	}
+
+	private void logDiffStats() {
+		int added = 0;
+		int removed = 0;
+		for (Map.Entry<String, UnifiedDiff.Diff> entry : this.diffStats.entrySet()) {
+			UnifiedDiff.Diff diff = entry.getValue();
+			Log.info(" %s | +%d -%d".formatted(entry.getKey(), diff.added(), diff.removed()));
+			added += diff.added();
+			removed += diff.removed();
+		}
+		Log.info("%d file(s) would change, %d insertion(s)(+), %d deletion(s)(-)".formatted(this.diffStats.size(),
+				added, removed));
+	}
+
+	/**
+	 * Abandon an unsuccessful run, deleting any staged files so that the originals are
+	 * left untouched.
+	 */
+	void abort() {
+		if (!this.staged.isEmpty()) {
+			Log.warn("Discarding " + this.staged.size() + " staged file(s)");
+		}
+		for (Path temp : this.staged.values()) {
+			try {
+				Files.deleteIfExists(temp);
+			}
+			catch (IOException ex) {
+				Log.warn("Unable to delete " + temp + ": " + ex);
+			}
+		}
+		this.staged.clear();
+	}
+
+	/**
+	 * Return if the files on disk now hold the migrated content, which is not the case
+	 * for a dry run or for a batch that has not been committed.
+	 * @return if the content is on disk
+	 */
+	boolean isWritten() {
+		return this.mode == Mode.IMMEDIATE || (this.mode == Mode.BATCH && this.committed);
+	}
+
+	/**
+	 * How migrated content is written.
+	 */
+	enum Mode {
+
+		/**
+		 * Each file is moved into place as soon as it has been migrated.
+		 */
+		IMMEDIATE,
+
+		/**
+		 * Files are staged and only moved into place once the whole run has succeeded.
+		 */
+		BATCH,
+
+		/**
+		 * Nothing is written. A unified diff of each change is output instead.
+		 */
+		DRY_RUN
+
+	}
+
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Options parsed from {@code --name=value} command line arguments.
+ */
+class Options {
+
+	private static final String DEFAULT_DIR = "/Users/pwebb/projects/spring-boot/code/3.4.x/";
+
+	/**
+	 * The names of every option that is read, so that a misspelled option fails rather
+	 * than silently using a default.
+	 */
+	private static final Set<String> NAMES = Set.of("antora-source", "antora-yml", "batch-commit", "cache-max-age",
+			"cache-max-size-mb", "circuit-breaker-open", "circuit-breaker-threshold", "connect-timeout", "dir",
+			"diff-output", "dry-run", "export-index", "fetch-concurrency", "fetch-concurrency-per-host",
+			"fetch-retries", "incremental", "index", "javadoc-site", "jfr", "lazy-remote-index", "log-level",
+			"manifest", "max-retry-backoff", "merge-reports", "metrics", "migration-threads", "negative-cache-ttl",
+			"port", "refresh-cache", "report", "request-timeout", "retry-backoff", "serve", "shard", "shard-strategy",
+			"snapshot", "source-catalog", "streaming-threshold-kb", "use-site-type-search-index");
+
+	private final Map<String, String> values;
+
+	private Options(Map<String, String> values) {
+		this.values = values;
+	}
+
+	/**
+	 * Return the root of the project being migrated, which the other paths default to
+	 * being relative to.
+	 * @return the project directory
+	 */
+	Path getDir() {
+		return Path.of(this.values.getOrDefault("dir", DEFAULT_DIR));
+	}
+
+	Path getJavadocSitePath() {
+		return getPath("javadoc-site", "spring-boot-project/spring-boot-docs/build/site/api/java");
+	}
+
+	Path getAntoraSourcePath() {
+		return getPath("antora-source", "spring-boot-project/spring-boot-docs/src/docs/antora/modules");
+	}
+
+	Path getAntoraYamlPath() {
+		return getPath("antora-yml", "spring-boot-project/spring-boot-docs/build/generated/docs/antora-yml/antora.yml");
+	}
+
+	int getFetchConcurrency() {
+		return getInt("fetch-concurrency", 16);
+	}
+
+	int getFetchConcurrencyPerHost() {
+		return getInt("fetch-concurrency-per-host", 4);
+	}
+
+	int getMigrationThreads() {
+		return getInt("migration-threads", Runtime.getRuntime().availableProcessors());
+	}
+
+	Path getSnapshotPath() {
+		String value = this.values.getOrDefault("snapshot", "build/javadoc-lookup.snapshot");
+		return (!value.equals("none")) ? Path.of(value) : null;
+	}
+
+	boolean isUseSiteTypeSearchIndex() {
+		return getBoolean("use-site-type-search-index");
+	}
+
+	boolean isLazyRemoteIndex() {
+		return getBoolean("lazy-remote-index");
+	}
+
+	Path getSourceCatalogPath() {
+		return Path.of(this.values.getOrDefault("source-catalog", "build/javadoc-source-catalog.json"));
+	}
+
+	boolean isServe() {
+		return getBoolean("serve");
+	}
+
+	int getServerPort() {
+		return getInt("port", 8085);
+	}
+
+	boolean isIncremental() {
+		return getBoolean("incremental");
+	}
+
+	Path getManifestPath() {
+		return Path.of(this.values.getOrDefault("manifest", "build/migration-manifest.json"));
+	}
+
+	Duration getCacheMaxAge() {
+		return (getBoolean("refresh-cache")) ? Duration.ZERO : getDuration("cache-max-age", null);
+	}
+
+	Duration getNegativeCacheTtl() {
+		return getDuration("negative-cache-ttl", Duration.ofDays(7));
+	}
+
+	long getCacheMaxSize() {
+		return getInt("cache-max-size-mb", 256) * 1024L * 1024L;
+	}
+
+	JavadocFetcher.Policy getFetchPolicy() {
+		JavadocFetcher.Policy defaults = JavadocFetcher.Policy.DEFAULT;
+		return new JavadocFetcher.Policy(getDuration("connect-timeout", defaults.connectTimeout()),
+				getDuration("request-timeout", defaults.requestTimeout()),
+				getInt("fetch-retries", defaults.maxRetries(), 0),
+				getDuration("retry-backoff", defaults.initialBackoff()),
+				getDuration("max-retry-backoff", defaults.maxBackoff()),
+				getInt("circuit-breaker-threshold", defaults.circuitBreakerThreshold()),
+				getDuration("circuit-breaker-open", defaults.circuitBreakerOpenDuration()));
+	}
+
+	long getStreamingThreshold() {
+		return getInt("streaming-threshold-kb", 1024) * 1024L;
+	}
+
+	MigrationWriter.Mode getWriteMode() {
+		boolean dryRun = getBoolean("dry-run");
+		boolean batchCommit = getBoolean("batch-commit");
+		if (dryRun && batchCommit) {
+			throw new IllegalArgumentException("Options '--dry-run' and '--batch-commit' cannot be used together");
+		}
+		return (dryRun) ? MigrationWriter.Mode.DRY_RUN
+				: (batchCommit) ? MigrationWriter.Mode.BATCH : MigrationWriter.Mode.IMMEDIATE;
+	}
+
+	/**
+	 * Return the file to write {@link MigrationWriter.Mode#DRY_RUN dry run} diffs to. When
+	 * not set, diffs are written to {@code System.out} and log messages to
+	 * {@code System.err} so that the output can be redirected to a patch file.
+	 * @return the diff file or {@code null}
+	 */
+	Path getDiffOutputPath() {
+		Path path = getPath("diff-output");
+		if (path != null && getWriteMode() != MigrationWriter.Mode.DRY_RUN) {
+			throw new IllegalArgumentException("Option '--diff-output' can only be used with '--dry-run'");
+		}
+		return path;
+	}
+
+	Log.Level getLogLevel() {
+		return Log.Level.parse(this.values.getOrDefault("log-level", "info"));
+	}
+
+	Path getIndexPath() {
+		return getPath("index");
+	}
+
+	Path getExportIndexPath() {
+		return getPath("export-index");
+	}
+
+	Shard getShard() {
+		String value = this.values.get("shard");
+		Shard.Strategy strategy = Shard.Strategy.parse(this.values.getOrDefault("shard-strategy", "hash"));
+		return (value != null) ? Shard.parse(value, strategy) : Shard.ALL;
+	}
+
+	/**
+	 * Return the file to write the {@link MigrationReport} to. Defaults to a file named
+	 * after the shard when the run is sharded.
+	 * @return the report file or {@code null}
+	 */
+	Path getReportPath() {
+		Path path = getPath("report");
+		if (path != null || !this.values.containsKey("shard")) {
+			return path;
+		}
+		Shard shard = getShard();
+		return Path.of("build/migration-report-%d-of-%d.json".formatted(shard.index(), shard.count()));
+	}
+
+	/**
+	 * Return the reports to merge, given as a comma separated list of report files or of
+	 * directories whose {@code .json} files are all reports.
+	 * @return the reports to merge or {@code null}
+	 * @throws IOException on IO error
+	 */
+	List<Path> getMergeReportPaths() throws IOException {
+		String value = this.values.get("merge-reports");
+		if (value == null) {
+			return null;
+		}
+		List<Path> paths = new ArrayList<>();
+		for (String element : value.split(",")) {
+			Path path = Path.of(element.trim());
+			if (Files.isDirectory(path)) {
+				try (Stream<Path> found = Files.list(path)) {
+					found.filter((file) -> file.getFileName().toString().endsWith(".json"))
+						.sorted()
+						.forEach(paths::add);
+				}
+			}
+			else {
+				paths.add(path);
+			}
+		}
+		return paths;
+	}
+
+	Path getMetricsPath() {
+		return getPath("metrics");
+	}
+
+	Path getJfrPath() {
+		return getPath("jfr");
+	}
+
+	private Path getPath(String name) {
+		String value = this.values.get(name);
+		return (value != null) ? Path.of(value) : null;
+	}
+
+	private Path getPath(String name, String defaultPathInDir) {
+		String value = this.values.get(name);
+		return (value != null) ? Path.of(value) : getDir().resolve(defaultPathInDir);
+	}
+
+	private boolean getBoolean(String name) {
+		return Boolean.parseBoolean(this.values.getOrDefault(name, "false"));
+	}
+
+	private Duration getDuration(String name, Duration defaultValue) {
+		String value = this.values.get(name);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Duration.parse(value);
+		}
+		catch (DateTimeParseException ex) {
+			throw new IllegalArgumentException("Option '--" + name + "' must be an ISO-8601 duration such as PT12H",
+					ex);
+		}
+	}
+
+	private int getInt(String name, int defaultValue) {
+		return getInt(name, defaultValue, 1);
+	}
+
+	private int getInt(String name, int defaultValue, int minimum) {
+		String value = this.values.get(name);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			int result = Integer.parseInt(value);
+			if (result < minimum) {
+				throw new IllegalArgumentException("Option '--" + name + "' must be "
+						+ ((minimum == 1) ? "positive" : "at least " + minimum));
+			}
+			return result;
+		}
+		catch (NumberFormatException ex) {
+			throw new IllegalArgumentException("Option '--" + name + "' must be a number", ex);
+		}
+	}
+
+	static Options parse(String[] args) {
+		Map<String, String> values = new HashMap<>();
+		for (String arg : args) {
+			if (!arg.startsWith("--")) {
+				throw new IllegalArgumentException("Unexpected argument '" + arg + "'");
+			}
+			int equals = arg.indexOf('=');
+			String name = (equals != -1) ? arg.substring(2, equals) : arg.substring(2);
+			String value = (equals != -1) ? arg.substring(equals + 1) : "true";
+			if (!NAMES.contains(name)) {
+				throw new IllegalArgumentException("Unknown option '--" + name + "'");
+			}
+			values.put(name, value);
+		}
+		return new Options(values);
+	}
+
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.zip.CRC32;
+
+/**
+ * One of a number of slices of the files to migrate, so that the work can be split across
+ * several processes or machines. Files are identified by their path relative to the
+ * Antora source directory so that every process computes the same partition from its
+ * own checkout.
+ *
+ * @param index the one-based index of this shard
+ * @param count the total number of shards
+ * @param strategy how files are assigned to shards
+ */
+record Shard(int index, int count, Strategy strategy) {
+
+	/**
+	 * The single shard that holds every file.
+	 */
+	static final Shard ALL = new Shard(1, 1, Strategy.HASH);
+
+	/**
+	 * Parse a shard in the form {@code i/n}.
+	 * @param value the value to parse
+	 * @param strategy the strategy
+	 * @return the shard
+	 */
+	static Shard parse(String value, Strategy strategy) {
+		int slash = value.indexOf('/');
+		try {
+			int index = Integer.parseInt(value.substring(0, Math.max(slash, 0)));
+			int count = Integer.parseInt(value.substring(slash + 1));
+			if (count >= 1 && index >= 1 && index <= count) {
+				return new Shard(index, count, strategy);
+			}
+		}
+		catch (NumberFormatException ex) {
+			// Fall through
+		}
+		throw new IllegalArgumentException("Option '--shard' must be in the form i/n with 1 <= i <= n");
+	}
+
+	/**
+	 * Return the files that belong to this shard, in the order given.
+	 * @param base the directory that the files are relative to
+	 * @param paths all files
+	 * @return the files of this shard
+	 * @throws IOException on IO error
+	 */
+	List<Path> select(Path base, List<Path> paths) throws IOException {
+		if (this.count == 1) {
+			return paths;
+		}
+		return switch (this.strategy) {
+			case HASH -> selectByHash(base, paths);
+			case SIZE -> selectBySize(base, paths);
+		};
+	}
+
+	private List<Path> selectByHash(Path base, List<Path> paths) {
+		List<Path> selected = new ArrayList<>();
+		for (Path path : paths) {
+			CRC32 crc = new CRC32();
+			crc.update(relativeName(base, path).getBytes(StandardCharsets.UTF_8));
+			if (crc.getValue() % this.count == this.index - 1) {
+				selected.add(path);
+			}
+		}
+		return selected;
+	}
+
+	/**
+	 * Assign the largest remaining file to the least loaded shard until all files are
+	 * assigned, which keeps the total size of each shard within the size of one file of
+	 * each other. Ties are broken by name and by shard index so that the result does not
+	 * depend on the order that the files were found in.
+	 */
+	private List<Path> selectBySize(Path base, List<Path> paths) throws IOException {
+		List<SizedFile> files = new ArrayList<>(paths.size());
+		for (Path path : paths) {
+			files.add(new SizedFile(path, relativeName(base, path), Files.size(path)));
+		}
+		files.sort(Comparator.comparingLong(SizedFile::size).reversed().thenComparing(SizedFile::name));
+		PriorityQueue<Bin> bins = new PriorityQueue<>(
+				Comparator.comparingLong(Bin::size).thenComparingInt(Bin::index));
+		for (int i = 0; i < this.count; i++) {
+			bins.add(new Bin(i, 0));
+		}
+		List<Path> selected = new ArrayList<>();
+		for (SizedFile file : files) {
+			Bin bin = bins.poll();
+			if (bin.index() == this.index - 1) {
+				selected.add(file.path());
+			}
+			bins.add(new Bin(bin.index(), bin.size() + file.size()));
+		}
+		selected.sort(null);
+		return selected;
+	}
+
+	/**
+	 * Return the name of the given file relative to the base directory, using {@code /}
+	 * as the separator on every platform.
+	 * @param base the base directory
+	 * @param path the file
+	 * @return the relative name
+	 */
+	static String relativeName(Path base, Path path) {
+		Path absoluteBase = base.toAbsolutePath().normalize();
+		Path absolute = path.toAbsolutePath().normalize();
+		Path relative = (absolute.startsWith(absoluteBase)) ? absoluteBase.relativize(absolute) : absolute;
+		return relative.toString().replace('\\', '/');
+	}
+
+	@Override
+	public String toString() {
+		return this.index + "/" + this.count;
+	}
+
+	private record SizedFile(Path path, String name, long size) {
+
+	}
+
+	private record Bin(int index, long size) {
+
+	}
+
+	/**
+	 * How files are assigned to shards.
+	 */
+	enum Strategy {
+
+		/**
+		 * Each file is assigned by a hash of its name, so a file stays in the same shard
+		 * as other files are added or removed.
+		 */
+		HASH,
+
+		/**
+		 * Files are packed so that each shard has about the same total size. Every shard
+		 * must see the files before any of them are migrated, so shards should not share
+		 * a checkout.
+		 */
+		SIZE;
+
+		static Strategy parse(String value) {
+			try {
+				return valueOf(value.toUpperCase(Locale.ROOT));
+			}
+			catch (IllegalArgumentException ex) {
+				throw new IllegalArgumentException("Option '--shard-strategy' must be one of hash or size", ex);
+			}
+		}
+
+	}
+
+}
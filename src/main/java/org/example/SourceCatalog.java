@@ -0,0 +1,139 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Catalog of the packages and simple names provided by each remote javadoc source,
+ * recorded whenever a source is indexed. It allows a {@link JavadocSite} to defer
+ * fetching and indexing a source until a name that it could provide is looked up.
+ * Sources are identified by their URL, which includes their version, so a catalog
+ * entry only becomes stale if the javadoc published at a URL changes. Such an entry is
+ * updated the next time that the source is indexed.
+ */
+class SourceCatalog {
+
+	private static final int VERSION = 1;
+
+	private static final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final Path path;
+
+	private final Map<String, Entry> entries;
+
+	private boolean changed;
+
+	private SourceCatalog(Path path, Map<String, Entry> entries) {
+		this.path = path;
+		this.entries = entries;
+	}
+
+	/**
+	 * Return the entry for the given source.
+	 * @param url the URL of the source
+	 * @return the entry or {@code null}
+	 */
+	synchronized Entry get(String url) {
+		return this.entries.get(url);
+	}
+
+	/**
+	 * Record the contents of the given source.
+	 * @param url the URL of the source
+	 * @param entry the contents of the source
+	 */
+	synchronized void put(String url, Entry entry) {
+		Entry previous = this.entries.put(url, entry);
+		this.changed |= !entry.equals(previous);
+	}
+
+	/**
+	 * Save the catalog if any entry has changed since it was loaded or last saved.
+	 * @throws IOException on IO error
+	 */
+	synchronized void save() throws IOException {
+		if (!this.changed) {
+			return;
+		}
+		Path directory = this.path.toAbsolutePath().getParent();
+		Files.createDirectories(directory);
+		Path temp = Files.createTempFile(directory, "catalog", ".tmp");
+		try {
+			objectMapper.writeValue(temp.toFile(), new Catalog(VERSION, new TreeMap<>(this.entries)));
+			Files.move(temp, this.path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			Files.deleteIfExists(temp);
+		}
+		this.changed = false;
+	}
+
+	static SourceCatalog load(Path path) throws IOException {
+		if (Files.exists(path)) {
+			Catalog catalog = objectMapper.readValue(path.toFile(), Catalog.class);
+			if (catalog.version() == VERSION) {
+				return new SourceCatalog(path, new TreeMap<>(catalog.sources()));
+			}
+		}
+		return new SourceCatalog(path, new TreeMap<>());
+	}
+
+	record Catalog(int version, Map<String, Entry> sources) {
+
+	}
+
+	/**
+	 * The contents of a source.
+	 *
+	 * @param packages the packages that contain at least one type
+	 * @param names the simple names of the types, with nested types named both with
+	 * {@code $} and with {@code .}
+	 */
+	record Entry(List<String> packages, List<String> names) {
+
+		/**
+		 * Create an entry for the given types.
+		 * @param types the package and class name of each type, with nested class names
+		 * using {@code $}
+		 * @return the entry
+		 */
+		static Entry of(Collection<JavadocSite.TypeName> types) {
+			Set<String> packages = new TreeSet<>();
+			Set<String> names = new TreeSet<>();
+			for (JavadocSite.TypeName type : types) {
+				packages.add(type.packageName());
+				names.add(type.className());
+				names.add(type.className().replace('$', '.'));
+			}
+			return new Entry(List.copyOf(packages), List.copyOf(names));
+		}
+
+	}
+
+}
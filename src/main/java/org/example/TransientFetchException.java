@@ -0,0 +1,42 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a fetch fails in a way that may succeed if retried, such as a {@code 5xx}
+ * or {@code 429} response.
+ */
+class TransientFetchException extends RuntimeException {
+
+	private final Duration retryAfter;
+
+	TransientFetchException(String message, Duration retryAfter) {
+		super(message);
+		this.retryAfter = retryAfter;
+	}
+
+	/**
+	 * Return the delay requested by the server's {@code Retry-After} header.
+	 * @return the delay or {@code null}
+	 */
+	Duration getRetryAfter() {
+		return this.retryAfter;
+	}
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Streaming reader for javadoc {@code type-search-index.js} files.
+ */
+final class TypeSearchIndex {
+
+	private static final JsonFactory jsonFactory = new JsonFactory();
+
+	private TypeSearchIndex() {
+	}
+
+	/**
+	 * Read the given {@code type-search-index.js} content, calling the consumer for each
+	 * element with a package and a class name. The {@code typeSearchIndex = } prefix is
+	 * skipped and nothing after the closing bracket of the array is read.
+	 * @param inputStream the source input stream
+	 * @param consumer the consumer called with each package and class name
+	 * @throws IOException on IO error
+	 */
+	static void read(InputStream inputStream, TypeConsumer consumer) throws IOException {
+		InputStream input = new BufferedInputStream(inputStream);
+		skipToArray(input);
+		try (JsonParser parser = jsonFactory.createParser(input)) {
+			if (parser.nextToken() != JsonToken.START_ARRAY) {
+				throw new JsonParseException(parser, "Expected type search index array");
+			}
+			while (parser.nextToken() == JsonToken.START_OBJECT) {
+				String packageName = null;
+				String className = null;
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					String field = parser.currentName();
+					parser.nextToken();
+					switch (field) {
+						case "p" -> packageName = parser.getValueAsString();
+						case "l" -> className = parser.getValueAsString();
+						default -> parser.skipChildren();
+					}
+				}
+				if (packageName != null && !packageName.isEmpty() && className != null && !className.isEmpty()) {
+					consumer.accept(packageName, className.replace(".", "$"));
+				}
+			}
+		}
+	}
+
+	private static void skipToArray(InputStream input) throws IOException {
+		while (true) {
+			input.mark(1);
+			int ch = input.read();
+			if (ch == -1) {
+				throw new IOException("No type search index array found");
+			}
+			if (ch == '[') {
+				input.reset();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Consumer called for each type in the index.
+	 */
+	@FunctionalInterface
+	interface TypeConsumer {
+
+		void accept(String packageName, String className);
+
+	}
+
+}
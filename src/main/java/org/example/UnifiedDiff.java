@@ -0,0 +1,337 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Line based unified diff of two texts. Lines are compared using Myers' O(ND) algorithm
+ * in its linear space form, which bisects the problem at the middle snake of an optimal
+ * edit path and recurses on each half after removing any common prefix and suffix.
+ * Lines that only appear in one of the texts can never be matched, so they are marked
+ * as changed up front and left out of the comparison. Migrated lines almost always have
+ * new content, which keeps D small even when most lines have changed.
+ */
+final class UnifiedDiff {
+
+	private static final int CONTEXT = 3;
+
+	private final int[] aLines;
+
+	private final int[] bLines;
+
+	private final int[] a;
+
+	private final int[] b;
+
+	private final boolean[] deleted;
+
+	private final boolean[] inserted;
+
+	private UnifiedDiff(int[] a, int[] b, int ids) {
+		this.deleted = new boolean[a.length];
+		this.inserted = new boolean[b.length];
+		this.aLines = matchable(a, b, ids, this.deleted);
+		this.bLines = matchable(b, a, ids, this.inserted);
+		this.a = select(a, this.aLines);
+		this.b = select(b, this.bLines);
+	}
+
+	/**
+	 * Return the indexes of the lines that also appear in the other text, marking the
+	 * rest as changed.
+	 */
+	private static int[] matchable(int[] lines, int[] other, int ids, boolean[] changed) {
+		boolean[] present = new boolean[ids];
+		for (int id : other) {
+			present[id] = true;
+		}
+		int[] matchable = new int[lines.length];
+		int count = 0;
+		for (int i = 0; i < lines.length; i++) {
+			if (present[lines[i]]) {
+				matchable[count++] = i;
+			}
+			else {
+				changed[i] = true;
+			}
+		}
+		return Arrays.copyOf(matchable, count);
+	}
+
+	private static int[] select(int[] lines, int[] indexes) {
+		int[] selected = new int[indexes.length];
+		for (int i = 0; i < indexes.length; i++) {
+			selected[i] = lines[indexes[i]];
+		}
+		return selected;
+	}
+
+	/**
+	 * Return the unified diff of the given texts.
+	 * @param label the label used for the file in the diff headers
+	 * @param original the original text
+	 * @param revised the revised text
+	 * @return the diff
+	 */
+	static Diff diff(String label, String original, String revised) {
+		List<String> originalLines = lines(original);
+		List<String> revisedLines = lines(revised);
+		Map<String, Integer> ids = new HashMap<>();
+		int[] originalIds = ids(originalLines, ids);
+		int[] revisedIds = ids(revisedLines, ids);
+		UnifiedDiff diff = new UnifiedDiff(originalIds, revisedIds, ids.size());
+		diff.compare(0, diff.a.length, 0, diff.b.length);
+		return diff.format(label, originalLines, revisedLines);
+	}
+
+	/**
+	 * Split the given text into lines, keeping each line's terminator so that a final
+	 * line with and without one are different.
+	 */
+	private static List<String> lines(String text) {
+		List<String> lines = new ArrayList<>();
+		int start = 0;
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) == '\n') {
+				lines.add(text.substring(start, i + 1));
+				start = i + 1;
+			}
+		}
+		if (start < text.length()) {
+			lines.add(text.substring(start));
+		}
+		return lines;
+	}
+
+	private static int[] ids(List<String> lines, Map<String, Integer> ids) {
+		int[] result = new int[lines.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = ids.computeIfAbsent(lines.get(i), (line) -> ids.size());
+		}
+		return result;
+	}
+
+	private void compare(int aStart, int aEnd, int bStart, int bEnd) {
+		while (aStart < aEnd && bStart < bEnd && this.a[aStart] == this.b[bStart]) {
+			aStart++;
+			bStart++;
+		}
+		while (aStart < aEnd && bStart < bEnd && this.a[aEnd - 1] == this.b[bEnd - 1]) {
+			aEnd--;
+			bEnd--;
+		}
+		if (aStart == aEnd || bStart == bEnd) {
+			markChanged(aStart, aEnd, bStart, bEnd);
+			return;
+		}
+		bisect(aStart, aEnd, bStart, bEnd);
+	}
+
+	/**
+	 * Find the middle snake by following furthest reaching paths forward from the start
+	 * and backward from the end until they overlap, then compare each side of it. Both
+	 * ranges are non-empty and differ at their first and last lines, so the split is
+	 * never at either corner.
+	 */
+	private void bisect(int aStart, int aEnd, int bStart, int bEnd) {
+		int n = aEnd - aStart;
+		int m = bEnd - bStart;
+		int maxD = (n + m + 1) / 2;
+		int offset = maxD;
+		int[] forward = new int[2 * maxD + 2];
+		int[] backward = new int[2 * maxD + 2];
+		Arrays.fill(forward, -1);
+		Arrays.fill(backward, -1);
+		forward[offset + 1] = 0;
+		backward[offset + 1] = 0;
+		int delta = n - m;
+		boolean checkForward = (delta % 2 != 0);
+		int forwardStartTrim = 0;
+		int forwardEndTrim = 0;
+		int backwardStartTrim = 0;
+		int backwardEndTrim = 0;
+		for (int d = 0; d < maxD; d++) {
+			for (int k = -d + forwardStartTrim; k <= d - forwardEndTrim; k += 2) {
+				int index = offset + k;
+				int x = (k == -d || (k != d && forward[index - 1] < forward[index + 1])) ? forward[index + 1]
+						: forward[index - 1] + 1;
+				int y = x - k;
+				while (x < n && y < m && this.a[aStart + x] == this.b[bStart + y]) {
+					x++;
+					y++;
+				}
+				forward[index] = x;
+				if (x > n) {
+					forwardEndTrim += 2;
+				}
+				else if (y > m) {
+					forwardStartTrim += 2;
+				}
+				else if (checkForward) {
+					int backwardIndex = offset + delta - k;
+					if (backwardIndex >= 0 && backwardIndex < backward.length && backward[backwardIndex] != -1
+							&& x >= n - backward[backwardIndex]) {
+						split(aStart, aEnd, bStart, bEnd, x, y);
+						return;
+					}
+				}
+			}
+			for (int k = -d + backwardStartTrim; k <= d - backwardEndTrim; k += 2) {
+				int index = offset + k;
+				int x = (k == -d || (k != d && backward[index - 1] < backward[index + 1])) ? backward[index + 1]
+						: backward[index - 1] + 1;
+				int y = x - k;
+				while (x < n && y < m && this.a[aEnd - x - 1] == this.b[bEnd - y - 1]) {
+					x++;
+					y++;
+				}
+				backward[index] = x;
+				if (x > n) {
+					backwardEndTrim += 2;
+				}
+				else if (y > m) {
+					backwardStartTrim += 2;
+				}
+				else if (!checkForward) {
+					int forwardIndex = offset + delta - k;
+					if (forwardIndex >= 0 && forwardIndex < forward.length && forward[forwardIndex] != -1) {
+						int forwardX = forward[forwardIndex];
+						if (forwardX >= n - x) {
+							split(aStart, aEnd, bStart, bEnd, forwardX, offset + forwardX - forwardIndex);
+							return;
+						}
+					}
+				}
+			}
+		}
+		markChanged(aStart, aEnd, bStart, bEnd);
+	}
+
+	private void markChanged(int aStart, int aEnd, int bStart, int bEnd) {
+		for (int i = aStart; i < aEnd; i++) {
+			this.deleted[this.aLines[i]] = true;
+		}
+		for (int i = bStart; i < bEnd; i++) {
+			this.inserted[this.bLines[i]] = true;
+		}
+	}
+
+	private void split(int aStart, int aEnd, int bStart, int bEnd, int x, int y) {
+		compare(aStart, aStart + x, bStart, bStart + y);
+		compare(aStart + x, aEnd, bStart + y, bEnd);
+	}
+
+	private Diff format(String label, List<String> originalLines, List<String> revisedLines) {
+		List<Edit> edits = new ArrayList<>();
+		int i = 0;
+		int j = 0;
+		int added = 0;
+		int removed = 0;
+		while (i < this.deleted.length || j < this.inserted.length) {
+			if (i < this.deleted.length && this.deleted[i]) {
+				edits.add(new Edit('-', i++, j));
+				removed++;
+			}
+			else if (j < this.inserted.length && this.inserted[j]) {
+				edits.add(new Edit('+', i, j++));
+				added++;
+			}
+			else {
+				edits.add(new Edit(' ', i++, j++));
+			}
+		}
+		if (added == 0 && removed == 0) {
+			return new Diff("", 0, 0);
+		}
+		StringBuilder out = new StringBuilder();
+		out.append("--- a/").append(label).append('\n');
+		out.append("+++ b/").append(label).append('\n');
+		int start = nextChange(edits, 0);
+		while (start != -1) {
+			int end = start;
+			int next = nextChange(edits, end + 1);
+			while (next != -1 && next - end <= 2 * CONTEXT) {
+				end = next;
+				next = nextChange(edits, end + 1);
+			}
+			appendHunk(out, edits, Math.max(0, start - CONTEXT), Math.min(edits.size(), end + CONTEXT + 1),
+					originalLines, revisedLines);
+			start = next;
+		}
+		return new Diff(out.toString(), added, removed);
+	}
+
+	private int nextChange(List<Edit> edits, int from) {
+		for (int i = from; i < edits.size(); i++) {
+			if (edits.get(i).type() != ' ') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private void appendHunk(StringBuilder out, List<Edit> edits, int start, int end, List<String> originalLines,
+			List<String> revisedLines) {
+		int originalCount = 0;
+		int revisedCount = 0;
+		for (int i = start; i < end; i++) {
+			char type = edits.get(i).type();
+			originalCount += (type != '+') ? 1 : 0;
+			revisedCount += (type != '-') ? 1 : 0;
+		}
+		Edit first = edits.get(start);
+		out.append("@@ -")
+			.append(first.originalLine() + ((originalCount != 0) ? 1 : 0))
+			.append(',')
+			.append(originalCount)
+			.append(" +")
+			.append(first.revisedLine() + ((revisedCount != 0) ? 1 : 0))
+			.append(',')
+			.append(revisedCount)
+			.append(" @@\n");
+		for (int i = start; i < end; i++) {
+			Edit edit = edits.get(i);
+			String line = (edit.type() != '+') ? originalLines.get(edit.originalLine())
+					: revisedLines.get(edit.revisedLine());
+			out.append(edit.type()).append(line);
+			if (!line.endsWith("\n")) {
+				out.append("\n\\ No newline at end of file\n");
+			}
+		}
+	}
+
+	private record Edit(char type, int originalLine, int revisedLine) {
+
+	}
+
+	/**
+	 * The result of a diff.
+	 *
+	 * @param text the unified diff, empty if the texts are the same
+	 * @param added the number of added lines
+	 * @param removed the number of removed lines
+	 */
+	record Diff(String text, int added, int removed) {
+
+	}
+
+}
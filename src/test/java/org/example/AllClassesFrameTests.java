@@ -0,0 +1,146 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests for {@link AllClassesFrame}, checking that it finds the same links as the
+ * regular expressions that it replaced.
+ */
+class AllClassesFrameTests {
+
+	private static final Pattern listItemPattern = Pattern.compile("<li>(.+?)<\\/li>");
+
+	private static final Pattern anchorPattern = Pattern.compile("<a href=[\"'](.+?)[\"'].*?>(.*)<\\/a>");
+
+	private static final Pattern innerTagPattern = Pattern.compile("<.*?>(.+)<\\/");
+
+	private static final String[] FRAGMENTS = { "<li>", "</li>", "<a href=\"", "<a href='", "<a href=", "\"", "'",
+			">", "</a>", "<span class=\"typeNameLink\">", "</span>", "<i>", "</i>", "<", "</", "org/example/Foo.html",
+			"Foo", "Foo.Bar", " title=\"class in org.example\"", " ", "\n", "\r\n", "\r", "\u0085", "\u2028",
+			"\u2029" };
+
+	@Test
+	void linksMatchRegexForTypicalListItems() {
+		assertLinksMatch("""
+				<ul>
+				<li><a href="org/example/Foo.html" title="class in org.example" target="classFrame">Foo</a></li>
+				<li><a href="org/example/Bar.Baz.html" title="interface in org.example" target="classFrame"><span \
+				class="interfaceName">Bar.Baz</span></a></li>
+				<li><a href='org/example/Qux.html'><i>Qux</i></a></li>
+				</ul>
+				""");
+	}
+
+	@Test
+	void linksMatchRegexWithLineTerminators() {
+		for (String terminator : List.of("\n", "\r\n", "\r", "\u0085", "\u2028", "\u2029")) {
+			assertLinksMatch(
+					"<li><a href=\"a/B.html\">B</a>" + terminator + "</li><li><a href=\"a/C.html\">C</a></li>");
+			assertLinksMatch("<li><a href=\"a/B.html\"" + terminator + ">B</a></li>");
+			assertLinksMatch("<li><a href=\"a/B.html\"><span>B" + terminator + "</span></a></li>");
+			assertLinksMatch("<li>" + terminator + "<a href=\"a/B.html\">B</a></li>");
+		}
+	}
+
+	@Test
+	void linksMatchRegexWithMalformedListItems() {
+		assertLinksMatch("<li><a href=\"a/B.html\">B</a>");
+		assertLinksMatch("<li><a href=\"a/B.html\">B</li>");
+		assertLinksMatch("<li><a href=a/B.html>B</a></li>");
+		assertLinksMatch("<li><a href=\"a/B.html\"</a></li>");
+		assertLinksMatch("<li><a href=\"\">B</a></li>");
+		assertLinksMatch("<li></li><li><a href=\"a/B.html\">B</a></li>");
+		assertLinksMatch("<li><li><a href=\"a/B.html\">B</a></li></li>");
+		assertLinksMatch("<li><a href=\"a/B.html\">B</a><a href=\"a/C.html\">C</a></li>");
+		assertLinksMatch("<li><a href=x<a href=\"a/B.html\">B</a></a></li>");
+		assertLinksMatch("<li><a href=\"a/B.html\"><span>B</a></li>");
+		assertLinksMatch("<li><a href=\"a/B.html\"><span><b>B</b></span></a></li>");
+		assertLinksMatch("<li><a href=\"a/B.html'>B</a></li>");
+	}
+
+	@Test
+	void linksMatchRegexForFuzzedListItems() {
+		Random random = new Random(0);
+		for (int i = 0; i < 5000; i++) {
+			StringBuilder body = new StringBuilder();
+			int fragments = random.nextInt(30);
+			for (int j = 0; j < fragments; j++) {
+				body.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+			}
+			assertLinksMatch(body.toString());
+		}
+	}
+
+	@Test
+	void linksMatchRegexForCachedPages() throws IOException {
+		assumeTrue(Files.isDirectory(Main.CACHE_PATH));
+		int links = 0;
+		try (Stream<Path> files = Files.list(Main.CACHE_PATH)) {
+			for (Path file : files.filter((path) -> path.getFileName().toString().contains("allclasses")).toList()) {
+				String body = Files.readString(file, StandardCharsets.ISO_8859_1);
+				List<String> expected = regexLinks(body);
+				assertThat(links(body)).isEqualTo(expected);
+				links += expected.size();
+			}
+		}
+		assertThat(links).isGreaterThan(0);
+	}
+
+	private void assertLinksMatch(String body) {
+		assertThat(links(body)).isEqualTo(regexLinks(body));
+	}
+
+	private List<String> regexLinks(String body) {
+		List<String> links = new ArrayList<>();
+		Matcher listItemMatcher = listItemPattern.matcher(body);
+		while (listItemMatcher.find()) {
+			Matcher anchorMatcher = anchorPattern.matcher(listItemMatcher.group(1));
+			if (anchorMatcher.find()) {
+				String text = anchorMatcher.group(2);
+				Matcher innerTagMatcher = innerTagPattern.matcher(text);
+				if (innerTagMatcher.find()) {
+					text = innerTagMatcher.group(1);
+				}
+				links.add(anchorMatcher.group(1) + " " + text);
+			}
+		}
+		return links;
+	}
+
+	private List<String> links(String body) {
+		List<String> links = new ArrayList<>();
+		AllClassesFrame.read(body, (href, text) -> links.add(href + " " + text));
+		return links;
+	}
+
+}
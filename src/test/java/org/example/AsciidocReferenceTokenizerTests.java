@@ -0,0 +1,198 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests for {@link AsciidocReferenceTokenizer}, checking that it finds the same tokens
+ * as the regular expressions that it replaced.
+ */
+class AsciidocReferenceTokenizerTests {
+
+	private static final Pattern xrefPattern = Pattern
+		.compile("xref:api:java\\/([^\\.]+)/(.*?)\\.html(#[^\\[]+)?\\[(.*?)\\]");
+
+	private static final Pattern classNamePattern = Pattern.compile("([\\s\\n])`([A-Za-z\\.@][A-Za-z0-9\\.]+)`");
+
+	private static final Pattern replacementPattern = Pattern
+		.compile("(" + xrefPattern.pattern() + ")|(" + classNamePattern.pattern() + ")");
+
+	private static final String[] FRAGMENTS = { "xref:api:java/", "xref:api:java", "org/", "example/", "Foo",
+			"Foo.Bar", ".html", ".htm", "#", "#anchor", "[", "]", "text", " ", "\t", "\n", "\r\n", "\r", "\u0085",
+			"\u2028", "\u2029", "`", "`Foo`", "@", ".", "/", "x", "1", "-" };
+
+	@Test
+	void tokensMatchRegexForSimpleReferences() {
+		assertTokensMatch("See xref:api:java/org/example/Foo.html[`Foo`] and `Bar`.");
+		assertTokensMatch("xref:api:java/org/example/Foo.Bar.html#method()[Foo.Bar#method]\n `@Baz` `a.b.C`");
+	}
+
+	@Test
+	void tokensMatchRegexWithLineTerminators() {
+		for (String terminator : List.of("\n", "\r\n", "\r", "\u0085", "\u2028", "\u2029", "\u000B", "\f")) {
+			assertTokensMatch("a" + terminator + "`Foo`" + terminator + "`Bar`");
+			assertTokensMatch("xref:api:java/org/" + terminator + "example/Foo.html[Foo]");
+			assertTokensMatch("xref:api:java/org/example/Foo" + terminator + ".html[Foo]");
+			assertTokensMatch("xref:api:java/org/example/Foo.html#a" + terminator + "b[Foo]");
+			assertTokensMatch("xref:api:java/org/example/Foo.html[Foo" + terminator + "]");
+			assertTokensMatch("xref:api:java/org/example/Foo.html[Foo" + terminator + "xref:api:java/a/B.html[B]");
+		}
+	}
+
+	@Test
+	void tokensMatchRegexWithUnterminatedReferences() {
+		assertTokensMatch(" `Foo");
+		assertTokensMatch(" `Foo bar` `Baz`");
+		assertTokensMatch(" `` `Foo`");
+		assertTokensMatch(" ``Foo``");
+		assertTokensMatch(" `");
+		assertTokensMatch("`Foo`");
+		assertTokensMatch("xref:api:java/org/example/Foo.html[Foo");
+		assertTokensMatch("xref:api:java/org/example/Foo.html");
+		assertTokensMatch("xref:api:java/org/example/Foo[Foo]");
+		assertTokensMatch("xref:api:java/Foo.html[Foo]");
+		assertTokensMatch("xref:api:java/org/example/Foo.html#[Foo]");
+		assertTokensMatch("xref:api:java/org/example/Foo.html#a]b[Foo]");
+		assertTokensMatch("xref:api:java/xref:api:java/xref:api:java/org/Foo.html[Foo]");
+		assertTokensMatch("xref:api:java/org/a.b/Foo.html.html[Foo]");
+		assertTokensMatch("xref:api:java/org/example/Foo.html[Foo] `Bar");
+	}
+
+	@Test
+	void tokensMatchRegexWhenChunked() {
+		String content = "Use xref:api:java/org/example/Foo.html#a[Foo]\r\nwith `Bar`\u2028 `Baz.Qux` and"
+				+ " xref:api:java/org/example/Bar.html[Bar]\n`Unterminated xref:api:java/org/Baz.html[";
+		List<AsciidocReferenceTokenizer.Token> expected = regexTokens(content);
+		for (int chunkSize = 1; chunkSize <= content.length(); chunkSize++) {
+			assertThat(chunkedTokens(content, new Random(chunkSize), chunkSize)).isEqualTo(expected);
+		}
+	}
+
+	@Test
+	void tokensMatchRegexForFuzzedContent() {
+		Random random = new Random(0);
+		for (int i = 0; i < 5000; i++) {
+			StringBuilder content = new StringBuilder();
+			int fragments = random.nextInt(40);
+			for (int j = 0; j < fragments; j++) {
+				content.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+			}
+			List<AsciidocReferenceTokenizer.Token> expected = regexTokens(content.toString());
+			assertThat(tokens(content.toString())).isEqualTo(expected);
+			assertThat(chunkedTokens(content.toString(), random, 16)).isEqualTo(expected);
+		}
+	}
+
+	@Test
+	void tokensMatchRegexForCachedContent() throws IOException {
+		assumeTrue(Files.isDirectory(Main.CACHE_PATH));
+		try (Stream<Path> files = Files.list(Main.CACHE_PATH)) {
+			for (Path file : files.filter(Files::isRegularFile).toList()) {
+				String content = Files.readString(file, StandardCharsets.ISO_8859_1);
+				List<AsciidocReferenceTokenizer.Token> expected = regexTokens(content);
+				assertThat(tokens(content)).isEqualTo(expected);
+				assertThat(chunkedTokens(content, new Random(0), 64 * 1024)).isEqualTo(expected);
+			}
+		}
+	}
+
+	private void assertTokensMatch(String content) {
+		List<AsciidocReferenceTokenizer.Token> expected = regexTokens(content);
+		assertThat(tokens(content)).isEqualTo(expected);
+		for (int chunkSize = 1; chunkSize <= 8; chunkSize++) {
+			assertThat(chunkedTokens(content, new Random(chunkSize), chunkSize)).isEqualTo(expected);
+		}
+	}
+
+	private List<AsciidocReferenceTokenizer.Token> regexTokens(String content) {
+		List<AsciidocReferenceTokenizer.Token> tokens = new ArrayList<>();
+		Matcher matcher = replacementPattern.matcher(content);
+		while (matcher.find()) {
+			tokens.add((matcher.start(1) != -1)
+					? new AsciidocReferenceTokenizer.Xref(matcher.start(), matcher.end(), matcher.group(2),
+							matcher.group(3), matcher.group(4), matcher.group(5))
+					: new AsciidocReferenceTokenizer.ClassName(matcher.start(), matcher.end(), matcher.group(7),
+							matcher.group(8)));
+		}
+		return tokens;
+	}
+
+	private List<AsciidocReferenceTokenizer.Token> tokens(String content) {
+		List<AsciidocReferenceTokenizer.Token> tokens = new ArrayList<>();
+		AsciidocReferenceTokenizer tokenizer = new AsciidocReferenceTokenizer(content, true);
+		AsciidocReferenceTokenizer.Token token;
+		while ((token = tokenizer.next()) != null) {
+			tokens.add(token);
+		}
+		return tokens;
+	}
+
+	/**
+	 * Tokenize the content as the streaming migration does, appending chunks of up to
+	 * the given size to a buffer and discarding everything before the resume position
+	 * after each one.
+	 */
+	private List<AsciidocReferenceTokenizer.Token> chunkedTokens(String content, Random random, int maxChunkSize) {
+		List<AsciidocReferenceTokenizer.Token> tokens = new ArrayList<>();
+		StringBuilder buffer = new StringBuilder();
+		int offset = 0;
+		int read = 0;
+		boolean complete = false;
+		while (!complete) {
+			int chunkSize = 1 + random.nextInt(maxChunkSize);
+			complete = read == content.length();
+			buffer.append(content, read, Math.min(read + chunkSize, content.length()));
+			read = Math.min(read + chunkSize, content.length());
+			AsciidocReferenceTokenizer tokenizer = new AsciidocReferenceTokenizer(buffer, complete);
+			AsciidocReferenceTokenizer.Token token;
+			while ((token = tokenizer.next()) != null) {
+				tokens.add(offset(token, offset));
+			}
+			int resume = tokenizer.getResumePosition();
+			buffer.delete(0, resume);
+			offset += resume;
+		}
+		assertThat(buffer.length()).isZero();
+		return tokens;
+	}
+
+	private AsciidocReferenceTokenizer.Token offset(AsciidocReferenceTokenizer.Token token, int offset) {
+		if (token instanceof AsciidocReferenceTokenizer.Xref xref) {
+			return new AsciidocReferenceTokenizer.Xref(xref.start() + offset, xref.end() + offset, xref.packagePath(),
+					xref.className(), xref.anchor(), xref.text());
+		}
+		AsciidocReferenceTokenizer.ClassName className = (AsciidocReferenceTokenizer.ClassName) token;
+		return new AsciidocReferenceTokenizer.ClassName(className.start() + offset, className.end() + offset,
+				className.prefix(), className.name());
+	}
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link HttpCache}.
+ */
+class HttpCacheTests {
+
+	private static final String A = "https://example.com/a.js";
+
+	private static final String B = "https://example.com/b.js";
+
+	private static final String C = "https://example.com/c.js";
+
+	@TempDir
+	Path temp;
+
+	@Test
+	void getReturnsStoredEntry() throws IOException {
+		HttpCache cache = createCache(1 << 20);
+		cache.store(A, download("content"), "\"etag\"", "Mon, 01 Jan 2024 00:00:00 GMT");
+		HttpCache.Entry entry = createCache(1 << 20).get(A);
+		assertThat(entry.isSuccessful()).isTrue();
+		assertThat(entry.etag()).isEqualTo("\"etag\"");
+		assertThat(entry.lastModified()).isEqualTo("Mon, 01 Jan 2024 00:00:00 GMT");
+		assertThat(read(entry)).isEqualTo("content");
+	}
+
+	@Test
+	void getWhenBodyHasBeenDeletedIsMiss() throws IOException {
+		HttpCache cache = createCache(1 << 20);
+		HttpCache.Entry entry = cache.store(A, download("content"), null, null);
+		Files.delete(entry.body());
+		assertThat(createCache(1 << 20).get(A)).isNull();
+	}
+
+	@Test
+	void trimEvictsLeastRecentlyUsedBody() throws IOException {
+		HttpCache previousRun = createCache(1 << 20);
+		Path a = previousRun.store(A, download(randomContent()), null, null).body();
+		Path b = previousRun.store(B, download(randomContent()), null, null).body();
+		Files.setLastModifiedTime(a, FileTime.fromMillis(System.currentTimeMillis() - 7_200_000));
+		Files.setLastModifiedTime(b, FileTime.fromMillis(System.currentTimeMillis() - 3_600_000));
+		HttpCache cache = createCache(Files.size(a) + Files.size(b) + 512);
+		assertThat(cache.get(A)).isNotNull();
+		cache.store(C, download(randomContent()), null, null);
+		assertThat(Files.exists(b)).isFalse();
+		assertThat(cache.get(B)).isNull();
+		assertThat(cache.get(A)).isNotNull();
+		assertThat(cache.get(C)).isNotNull();
+	}
+
+	@Test
+	void trimDoesNotEvictBodyInUse() throws IOException {
+		HttpCache cache = createCache(1024);
+		HttpCache.Entry a = cache.store(A, download(randomContent()), null, null);
+		Files.setLastModifiedTime(a.body(), FileTime.fromMillis(System.currentTimeMillis() - 3_600_000));
+		cache.store(B, download(randomContent()), null, null);
+		assertThat(read(a)).hasSize(2048);
+		assertThat(createCache(1024).get(A)).isNotNull();
+	}
+
+	@Test
+	void sizeIsAdjustedWhenBodyIsReplaced() throws IOException {
+		HttpCache cache = createCache(1 << 20);
+		HttpCache.Entry a = cache.store(A, download(randomContent()), null, null);
+		assertThat(cache.size()).isEqualTo(Files.size(a.body()));
+		HttpCache.Entry b = cache.store(B, download("small"), null, null);
+		assertThat(cache.size()).isEqualTo(Files.size(a.body()) + Files.size(b.body()));
+		cache.storeNegative(A, 404);
+		assertThat(cache.size()).isEqualTo(Files.size(b.body()));
+	}
+
+	@Test
+	void sizeIsCalculatedAfterNegativeEntryReplacesBody() throws IOException {
+		createCache(1 << 20).store(A, download(randomContent()), null, null);
+		HttpCache cache = createCache(1 << 20);
+		cache.storeNegative(A, 404);
+		assertThat(cache.size()).isEqualTo(0);
+		assertThat(cache.get(A).status()).isEqualTo(404);
+	}
+
+	@Test
+	void getReadsLegacyEntry() throws IOException {
+		Files.createDirectories(this.temp.resolve("cache"));
+		Path legacy = Files.writeString(this.temp.resolve("cache/https__example_com_a_js"), "legacy");
+		HttpCache cache = createCache(1 << 20);
+		HttpCache.Entry entry = cache.get(A);
+		assertThat(entry.isSuccessful()).isTrue();
+		assertThat(entry.compressed()).isFalse();
+		assertThat(read(entry)).isEqualTo("legacy");
+		HttpCache.Entry revalidated = cache.revalidated(entry);
+		assertThat(revalidated.compressed()).isTrue();
+		assertThat(read(revalidated)).isEqualTo("legacy");
+		assertThat(Files.readString(legacy)).isEqualTo("legacy");
+		assertThat(cache.get(A).compressed()).isTrue();
+	}
+
+	@Test
+	void getReadsLegacyNegativeEntry() throws IOException {
+		Files.createDirectories(this.temp.resolve("cache"));
+		Files.writeString(this.temp.resolve("cache/https__example_com_a_js"), "BadStatusCodeException__404");
+		HttpCache.Entry entry = createCache(1 << 20).get(A);
+		assertThat(entry.status()).isEqualTo(404);
+		assertThat(entry.body()).isNull();
+	}
+
+	private HttpCache createCache(long maxSize) {
+		return new HttpCache(this.temp.resolve("cache"), null, Duration.ofDays(1), maxSize);
+	}
+
+	private Path download(String content) throws IOException {
+		return Files.writeString(Files.createTempFile(this.temp, "download", ".tmp"), content);
+	}
+
+	/**
+	 * Return content that does not compress, so that the size of a body is predictable.
+	 */
+	private String randomContent() {
+		Random random = new Random();
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; i < 2048; i++) {
+			content.append((char) ('!' + random.nextInt(94)));
+		}
+		return content.toString();
+	}
+
+	private String read(HttpCache.Entry entry) throws IOException {
+		try (InputStream input = entry.open()) {
+			return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+}
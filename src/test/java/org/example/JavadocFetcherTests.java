@@ -0,0 +1,319 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link JavadocFetcher}, run against a local stub server that replies to
+ * each path with a scripted sequence of responses.
+ */
+class JavadocFetcherTests {
+
+	private static final JavadocFetcher.Policy POLICY = new JavadocFetcher.Policy(Duration.ofSeconds(2),
+			Duration.ofMillis(500), 2, Duration.ofMillis(10), Duration.ofSeconds(2), 3, Duration.ofMillis(300));
+
+	@TempDir
+	Path temp;
+
+	private final Map<String, Deque<Response>> responses = new ConcurrentHashMap<>();
+
+	private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+
+	private ExecutorService executor;
+
+	private HttpServer server;
+
+	@BeforeEach
+	void startServer() throws IOException {
+		this.executor = Executors.newCachedThreadPool((runnable) -> {
+			Thread thread = new Thread(runnable, "stub-server");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		this.server.setExecutor(this.executor);
+		this.server.createContext("/", this::handle);
+		this.server.start();
+	}
+
+	@AfterEach
+	void stopServer() {
+		this.server.stop(0);
+		this.executor.shutdownNow();
+	}
+
+	@Test
+	void serviceUnavailableIsRetried() throws IOException {
+		respond("/flaky", Response.status(503), Response.ok("content"));
+		HttpCache.Entry entry = createFetcher(POLICY).get(url("/flaky")).join();
+		assertThat(read(entry)).isEqualTo("content");
+		assertThat(hits("/flaky")).isEqualTo(2);
+	}
+
+	@Test
+	void tooManyRequestsIsRetriedAfterRetryAfterDelay() throws IOException {
+		respond("/limited", Response.status(429).header("Retry-After", "1"), Response.ok("content"));
+		long start = System.nanoTime();
+		HttpCache.Entry entry = createFetcher(POLICY).get(url("/limited")).join();
+		assertThat(read(entry)).isEqualTo("content");
+		assertThat(hits("/limited")).isEqualTo(2);
+		assertThat(Duration.ofNanos(System.nanoTime() - start).toMillis()).isGreaterThanOrEqualTo(1000L);
+	}
+
+	@Test
+	void notFoundIsNotRetriedAndIsNegativelyCached() {
+		respond("/missing", Response.status(404));
+		HttpCache cache = createCache(null);
+		assertThatExceptionOfType(CompletionException.class)
+			.isThrownBy(() -> new JavadocFetcher(cache, 4, 2, POLICY).get(url("/missing")).join())
+			.withCauseInstanceOf(BadStatusCodeException.class);
+		assertThat(hits("/missing")).isEqualTo(1);
+		assertThatExceptionOfType(CompletionException.class)
+			.isThrownBy(() -> new JavadocFetcher(cache, 4, 2, POLICY).get(url("/missing")).join())
+			.withCauseInstanceOf(BadStatusCodeException.class);
+		assertThat(hits("/missing")).isEqualTo(1);
+	}
+
+	@Test
+	void requestThatTimesOutIsRetried() throws IOException {
+		respond("/slow", Response.ok("late").delay(Duration.ofSeconds(2)), Response.ok("content"));
+		HttpCache.Entry entry = createFetcher(POLICY).get(url("/slow")).join();
+		assertThat(read(entry)).isEqualTo("content");
+		assertThat(hits("/slow")).isEqualTo(2);
+	}
+
+	@Test
+	void requestThatKeepsTimingOutFails() {
+		respond("/slow", Response.ok("late").delay(Duration.ofSeconds(2)));
+		JavadocFetcher.Policy policy = new JavadocFetcher.Policy(Duration.ofSeconds(2), Duration.ofMillis(200), 0,
+				Duration.ofMillis(10), Duration.ofSeconds(2), 3, Duration.ofMillis(300));
+		assertThatExceptionOfType(CompletionException.class)
+			.isThrownBy(() -> createFetcher(policy).get(url("/slow")).join())
+			.withCauseInstanceOf(HttpTimeoutException.class);
+		assertThat(hits("/slow")).isEqualTo(1);
+	}
+
+	@Test
+	void circuitOpensAfterConsecutiveFailuresAndAllowsTrialOnceOpenDurationHasPassed()
+			throws IOException, InterruptedException {
+		respond("/down", Response.status(500));
+		respond("/up", Response.ok("content"));
+		respond("/other", Response.ok("content"));
+		JavadocFetcher.Policy policy = new JavadocFetcher.Policy(Duration.ofSeconds(2), Duration.ofMillis(500), 0,
+				Duration.ofMillis(10), Duration.ofSeconds(2), 2, Duration.ofMillis(300));
+		JavadocFetcher fetcher = createFetcher(policy);
+		for (int i = 0; i < 2; i++) {
+			String url = url("/down?" + i);
+			assertThatExceptionOfType(CompletionException.class).isThrownBy(() -> fetcher.get(url).join())
+				.withCauseInstanceOf(TransientFetchException.class);
+		}
+		assertThat(hits("/down")).isEqualTo(2);
+		assertThatExceptionOfType(CompletionException.class).isThrownBy(() -> fetcher.get(url("/up?0")).join())
+			.withCauseInstanceOf(CircuitOpenException.class);
+		assertThat(hits("/up")).isEqualTo(0);
+		assertThat(read(fetcher.get(url("/other", "localhost")).join())).isEqualTo("content");
+		Thread.sleep(400);
+		assertThatExceptionOfType(CompletionException.class).isThrownBy(() -> fetcher.get(url("/down?2")).join())
+			.withCauseInstanceOf(TransientFetchException.class);
+		assertThat(hits("/down")).isEqualTo(3);
+		assertThatExceptionOfType(CompletionException.class).isThrownBy(() -> fetcher.get(url("/up?1")).join())
+			.withCauseInstanceOf(CircuitOpenException.class);
+		Thread.sleep(400);
+		assertThat(read(fetcher.get(url("/up?2")).join())).isEqualTo("content");
+		assertThat(read(fetcher.get(url("/up?3")).join())).isEqualTo("content");
+		assertThat(hits("/up")).isEqualTo(2);
+	}
+
+	@Test
+	void staleEntryIsUsedWhenRevalidationFails() throws IOException {
+		respond("/stale", Response.ok("content"), Response.status(503));
+		HttpCache.Entry fresh = createFetcher(POLICY).get(url("/stale")).join();
+		assertThat(read(fresh)).isEqualTo("content");
+		JavadocFetcher fetcher = new JavadocFetcher(createCache(Duration.ZERO), 4, 2, POLICY);
+		HttpCache.Entry stale = fetcher.get(url("/stale")).join();
+		assertThat(read(stale)).isEqualTo("content");
+		assertThat(hits("/stale")).isEqualTo(4);
+	}
+
+	@Test
+	void siteWithSourceThatCannotBeFetchedIsIncomplete() throws IOException {
+		respond("/good/type-search-index.js",
+				Response.ok("typeSearchIndex = [{\"p\":\"com.example.good\",\"l\":\"Good\"}];updateSearchResults();"));
+		respond("/bad/type-search-index.js", Response.status(503));
+		Path site = Files.createDirectories(this.temp.resolve("site"));
+		List<String> antoraYaml = List.of("    url-good-javadoc: " + url("/good"),
+				"    url-bad-javadoc: " + url("/bad", "localhost"));
+		JavadocSite javadocSite = new JavadocSite(antoraYaml, site, createFetcher(POLICY));
+		assertThat(javadocSite.isComplete()).isFalse();
+		assertThat(javadocSite.getFailures()).hasSize(1);
+		assertThat(javadocSite.getFailures().get(0)).contains(url("/bad", "localhost"));
+		assertThat(javadocSite.lookup("Good")).containsExactly("{url-good-javadoc}/com.example.good.Good");
+		assertThat(hits("/bad/type-search-index.js")).isEqualTo(3);
+	}
+
+	@Test
+	void lazySiteOnlyFetchesSourcesThatCouldProvideName() throws IOException {
+		respond("/one/type-search-index.js", Response.ok(typeSearchIndex("com.example.one", "Shared", "One",
+				"Outer.Inner")));
+		respond("/two/type-search-index.js", Response.ok(typeSearchIndex("com.example.two", "Shared", "Two")));
+		respond("/three/type-search-index.js", Response.ok(typeSearchIndex("org.other", "Three")));
+		Path site = Files.createDirectories(this.temp.resolve("site"));
+		List<String> antoraYaml = List.of("    url-one-javadoc: " + url("/one"), "    url-two-javadoc: " + url("/two"),
+				"    url-three-javadoc: " + url("/three"));
+		Path catalogPath = this.temp.resolve("catalog.json");
+		JavadocSite eager = new JavadocSite(antoraYaml, site, createFetcher(POLICY), false,
+				SourceCatalog.load(catalogPath));
+		assertThat(hits("/one/type-search-index.js")).isEqualTo(1);
+		assertThat(hits("/two/type-search-index.js")).isEqualTo(1);
+		assertThat(hits("/three/type-search-index.js")).isEqualTo(1);
+		JavadocFetcher fetcher = new JavadocFetcher(
+				new HttpCache(this.temp.resolve("lazy-cache"), null, Duration.ofDays(1), 1 << 20), 4, 2, POLICY);
+		JavadocSite lazy = new JavadocSite(antoraYaml, site, fetcher, false, SourceCatalog.load(catalogPath));
+		assertThat(hits("/one/type-search-index.js")).isEqualTo(1);
+		assertThat(hits("/two/type-search-index.js")).isEqualTo(1);
+		assertThat(hits("/three/type-search-index.js")).isEqualTo(1);
+		assertThat(lazy.lookup("Missing")).isNull();
+		assertThat(lazy.lookup("Two")).isEqualTo(eager.lookup("Two"));
+		assertThat(hits("/one/type-search-index.js")).isEqualTo(1);
+		assertThat(hits("/two/type-search-index.js")).isEqualTo(2);
+		assertThat(hits("/three/type-search-index.js")).isEqualTo(1);
+		assertThat(lazy.lookup("Shared")).isEqualTo(eager.lookup("Shared"))
+			.isEqualTo(List.of("{url-one-javadoc}/com.example.one.Shared", "{url-two-javadoc}/com.example.two.Shared"));
+		assertThat(hits("/one/type-search-index.js")).isEqualTo(2);
+		assertThat(hits("/two/type-search-index.js")).isEqualTo(2);
+		assertThat(hits("/three/type-search-index.js")).isEqualTo(1);
+		for (String name : List.of("One", "Outer.Inner", "Outer$Inner", "com.example.one.One", "Missing")) {
+			assertThat(lazy.lookup(name)).isEqualTo(eager.lookup(name));
+		}
+		assertThat(hits("/three/type-search-index.js")).isEqualTo(1);
+		assertThat(lazy.lookup("org.other.Three")).isEqualTo(eager.lookup("org.other.Three"));
+		assertThat(hits("/three/type-search-index.js")).isEqualTo(2);
+		assertThat(lazy.isComplete()).isTrue();
+	}
+
+	private JavadocFetcher createFetcher(JavadocFetcher.Policy policy) {
+		return new JavadocFetcher(createCache(null), 4, 2, policy);
+	}
+
+	private HttpCache createCache(Duration maxAge) {
+		return new HttpCache(this.temp.resolve("cache"), maxAge, Duration.ofDays(1), 1 << 20);
+	}
+
+	private String url(String path) {
+		return url(path, "127.0.0.1");
+	}
+
+	private String url(String path, String host) {
+		return "http://" + host + ":" + this.server.getAddress().getPort() + path;
+	}
+
+	private void respond(String path, Response... responses) {
+		this.responses.put(path, new ArrayDeque<>(List.of(responses)));
+	}
+
+	private int hits(String path) {
+		return this.hits.computeIfAbsent(path, (key) -> new AtomicInteger()).get();
+	}
+
+	private String read(HttpCache.Entry entry) throws IOException {
+		try (InputStream input = entry.open()) {
+			return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	private String typeSearchIndex(String packageName, String... classNames) {
+		StringBuilder index = new StringBuilder("typeSearchIndex = [");
+		for (int i = 0; i < classNames.length; i++) {
+			index.append((i != 0) ? "," : "")
+				.append("{\"p\":\"%s\",\"l\":\"%s\"}".formatted(packageName, classNames[i]));
+		}
+		return index.append("];updateSearchResults();").toString();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		String path = exchange.getRequestURI().getPath();
+		this.hits.computeIfAbsent(path, (key) -> new AtomicInteger()).incrementAndGet();
+		Deque<Response> scripted = this.responses.get(path);
+		Response response;
+		synchronized (scripted) {
+			response = (scripted.size() > 1) ? scripted.removeFirst() : scripted.getFirst();
+		}
+		try (exchange) {
+			if (response.delay() != null) {
+				Thread.sleep(response.delay().toMillis());
+			}
+			response.headers().forEach((name, value) -> exchange.getResponseHeaders().add(name, value));
+			byte[] body = (response.body() != null) ? response.body().getBytes(StandardCharsets.UTF_8) : null;
+			exchange.sendResponseHeaders(response.status(), (body != null) ? body.length : -1);
+			if (body != null) {
+				exchange.getResponseBody().write(body);
+			}
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private record Response(int status, String body, Map<String, String> headers, Duration delay) {
+
+		static Response ok(String body) {
+			return new Response(200, body, Map.of(), null);
+		}
+
+		static Response status(int status) {
+			return new Response(status, null, Map.of(), null);
+		}
+
+		Response header(String name, String value) {
+			return new Response(this.status, this.body, Map.of(name, value), this.delay);
+		}
+
+		Response delay(Duration delay) {
+			return new Response(this.status, this.body, this.headers, delay);
+		}
+
+	}
+
+}
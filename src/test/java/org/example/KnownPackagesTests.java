@@ -0,0 +1,83 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link KnownPackages}.
+ */
+class KnownPackagesTests {
+
+	@Test
+	void containsAddedPackage() {
+		KnownPackages knownPackages = new KnownPackages();
+		knownPackages.add("org.foo");
+		assertThat(knownPackages.contains("org.foo")).isTrue();
+	}
+
+	@Test
+	void containsSubPackageOfAddedPackage() {
+		KnownPackages knownPackages = new KnownPackages();
+		knownPackages.add("org.foo");
+		assertThat(knownPackages.contains("org.foo.bar")).isTrue();
+		assertThat(knownPackages.contains("org.foo.bar.baz")).isTrue();
+	}
+
+	@Test
+	void doesNotContainPackageThatOnlySharesPrefixWithinSegment() {
+		KnownPackages knownPackages = new KnownPackages();
+		knownPackages.add("org.foo");
+		assertThat(knownPackages.contains("org.foobar")).isFalse();
+		assertThat(knownPackages.contains("org.fo")).isFalse();
+		assertThat(knownPackages.contains("org.foobar.baz")).isFalse();
+	}
+
+	@Test
+	void doesNotContainParentOfAddedPackage() {
+		KnownPackages knownPackages = new KnownPackages();
+		knownPackages.add("org.foo.bar");
+		assertThat(knownPackages.contains("org")).isFalse();
+		assertThat(knownPackages.contains("org.foo")).isFalse();
+		assertThat(knownPackages.contains("org.foo.baz")).isFalse();
+		assertThat(knownPackages.contains("org.foo.bar.baz")).isTrue();
+	}
+
+	@Test
+	void containsNestedPackagesAddedSeparately() {
+		KnownPackages knownPackages = new KnownPackages();
+		knownPackages.add("org.foo.bar");
+		knownPackages.add("org.foo");
+		knownPackages.add("com.example");
+		assertThat(knownPackages.contains("org.foo")).isTrue();
+		assertThat(knownPackages.contains("org.foo.bar")).isTrue();
+		assertThat(knownPackages.contains("org.foo.baz")).isTrue();
+		assertThat(knownPackages.contains("com.example.foo")).isTrue();
+		assertThat(knownPackages.contains("com.other")).isFalse();
+	}
+
+	@Test
+	void whenEmptyContainsNothing() {
+		KnownPackages knownPackages = new KnownPackages();
+		assertThat(knownPackages.contains("org.foo")).isFalse();
+		assertThat(knownPackages.contains("org")).isFalse();
+		assertThat(knownPackages.contains("")).isFalse();
+	}
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link LookupSnapshot}.
+ */
+class LookupSnapshotTests {
+
+	private static final List<String> ANTORA_YAML = List.of("    url-example-javadoc: https://example.com/api");
+
+	private static final byte[] FINGERPRINT = new byte[32];
+
+	private static final String LONG_KEY = "Long\u00e9".repeat(100);
+
+	@TempDir
+	Path temp;
+
+	@Test
+	void fingerprintIsStable() throws IOException {
+		Path site = createSite();
+		assertThat(LookupSnapshot.fingerprint(ANTORA_YAML, site, true))
+			.isEqualTo(LookupSnapshot.fingerprint(ANTORA_YAML, site, true));
+	}
+
+	@Test
+	void fingerprintChangesWithUseOfTypeSearchIndex() throws IOException {
+		Path site = createSite();
+		assertThat(LookupSnapshot.fingerprint(ANTORA_YAML, site, true))
+			.isNotEqualTo(LookupSnapshot.fingerprint(ANTORA_YAML, site, false));
+	}
+
+	@Test
+	void fingerprintChangesWhenTypeSearchIndexChanges() throws IOException {
+		Path site = createSite();
+		Path typeSearchIndex = site.resolve("type-search-index.js");
+		FileTime siteModified = Files.getLastModifiedTime(site);
+		byte[] fingerprint = LookupSnapshot.fingerprint(ANTORA_YAML, site, true);
+		byte[] scanFingerprint = LookupSnapshot.fingerprint(ANTORA_YAML, site, false);
+		Files.writeString(typeSearchIndex, "typeSearchIndex = [{\"p\":\"com.example\",\"l\":\"Other\"}]");
+		Files.setLastModifiedTime(typeSearchIndex, FileTime.fromMillis(siteModified.toMillis() + 60_000));
+		Files.setLastModifiedTime(site, siteModified);
+		assertThat(LookupSnapshot.fingerprint(ANTORA_YAML, site, true)).isNotEqualTo(fingerprint);
+		assertThat(LookupSnapshot.fingerprint(ANTORA_YAML, site, false)).isEqualTo(scanFingerprint);
+	}
+
+	@Test
+	void readReturnsWrittenTable() throws IOException {
+		LookupTable table = createTable();
+		LookupSnapshot snapshot = new LookupSnapshot(this.temp.resolve("lookup.snapshot"));
+		snapshot.write(FINGERPRINT, table);
+		LookupTable read = snapshot.read(FINGERPRINT);
+		assertThat(read.size()).isEqualTo(table.size());
+		for (String key : List.of("Example", "Caf\u00e9", "\ud835\udc9c", LONG_KEY)) {
+			assertThat(read.get(key, 0, key.length())).isEqualTo(table.get(key, 0, key.length()));
+		}
+		assertThat(read.get("Example", 0, 7)).containsExactly("com.example.Example", "com.example.other.Example");
+		assertThat(read.get("Missing", 0, 7)).isNull();
+	}
+
+	@Test
+	void readWithDifferentFingerprintReturnsNull() throws IOException {
+		LookupSnapshot snapshot = new LookupSnapshot(this.temp.resolve("lookup.snapshot"));
+		snapshot.write(FINGERPRINT, createTable());
+		byte[] other = FINGERPRINT.clone();
+		other[0]++;
+		assertThat(snapshot.read(other)).isNull();
+	}
+
+	@Test
+	void readOfTruncatedSnapshotReturnsNull() throws IOException {
+		Path path = this.temp.resolve("lookup.snapshot");
+		new LookupSnapshot(path).write(FINGERPRINT, createTable());
+		byte[] content = Files.readAllBytes(path);
+		for (int length = 0; length < content.length; length++) {
+			Path truncated = Files.write(this.temp.resolve("truncated.snapshot"), Arrays.copyOf(content, length));
+			assertThat(new LookupSnapshot(truncated).read(FINGERPRINT)).isNull();
+		}
+	}
+
+	@Test
+	void readOfSnapshotWithCorruptLengthReturnsNull() throws IOException {
+		Path path = this.temp.resolve("lookup.snapshot");
+		new LookupSnapshot(path).write(FINGERPRINT, createTable());
+		byte[] content = Files.readAllBytes(path);
+		ByteBuffer.wrap(content).putInt(8 + FINGERPRINT.length, -1);
+		Files.write(path, content);
+		assertThat(new LookupSnapshot(path).read(FINGERPRINT)).isNull();
+		ByteBuffer.wrap(content).putInt(8 + FINGERPRINT.length, Integer.MAX_VALUE);
+		Files.write(path, content);
+		assertThat(new LookupSnapshot(path).read(FINGERPRINT)).isNull();
+	}
+
+	private LookupTable createTable() {
+		LookupTable table = new LookupTable();
+		table.add("Example", "com.example.Example");
+		table.add("Example", "com.example.other.Example");
+		table.add("Caf\u00e9", "com.example.Caf\u00e9");
+		table.add("\ud835\udc9c", "com.example.\ud835\udc9c");
+		table.add(LONG_KEY, "com.example.Long");
+		return table;
+	}
+
+	private Path createSite() throws IOException {
+		Path site = Files.createDirectories(this.temp.resolve("site"));
+		Files.writeString(site.resolve("type-search-index.js"),
+				"typeSearchIndex = [{\"p\":\"com.example\",\"l\":\"Example\"}]");
+		return site;
+	}
+
+}
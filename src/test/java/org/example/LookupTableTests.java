@@ -0,0 +1,73 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link LookupTable}.
+ */
+class LookupTableTests {
+
+	@Test
+	void getReturnsTargetsInOrderAdded() {
+		LookupTable table = new LookupTable();
+		table.add("Foo", "com.example.one.Foo");
+		table.add("Foo", "com.example.two.Foo");
+		table.add("com.example.one.Foo", "com.example.one.Foo");
+		assertThat(table.get("Foo")).containsExactly("com.example.one.Foo", "com.example.two.Foo");
+		assertThat(table.get("com.example.one.Foo")).containsExactly("com.example.one.Foo");
+		assertThat(table.get("Bar")).isNull();
+		assertThat(table.getTargets()).hasSize(2);
+	}
+
+	@Test
+	void getWithRegionMatchesKey() {
+		LookupTable table = new LookupTable();
+		table.add("Foo", "com.example.Foo");
+		assertThat(table.get("use `Foo` here", 5, 8)).containsExactly("com.example.Foo");
+		assertThat(table.get("use `Foo` here", 4, 8)).isNull();
+	}
+
+	@Test
+	void addAfterCompactInternsExistingTargets() {
+		LookupTable table = new LookupTable();
+		table.add("Foo", "com.example.Foo");
+		table.compact();
+		table.add("com.example.Foo", "com.example.Foo");
+		table.add("Bar", "com.example.Bar");
+		assertThat(table.getTargets()).containsExactly("com.example.Foo", "com.example.Bar");
+		assertThat(table.get("com.example.Foo")).containsExactly("com.example.Foo");
+		assertThat(table.get("Bar")).containsExactly("com.example.Bar");
+	}
+
+	@Test
+	void withTargetsRestoresKeys() {
+		LookupTable table = LookupTable.withTargets(List.of("com.example.Foo", "com.example.Bar"));
+		table.addTargetIds("Foo", new int[] { 0 });
+		table.addTargetIds("Ambiguous", new int[] { 0, 1 });
+		table.add("Foo", "com.example.Bar");
+		assertThat(table.get("Foo")).containsExactly("com.example.Foo", "com.example.Bar");
+		assertThat(table.get("Ambiguous")).containsExactly("com.example.Foo", "com.example.Bar");
+		assertThat(table.getTargets()).hasSize(2);
+	}
+
+}
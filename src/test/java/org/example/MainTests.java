@@ -0,0 +1,166 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * Tests for {@link Main}.
+ */
+class MainTests {
+
+	@TempDir
+	Path temp;
+
+	private Path source;
+
+	@BeforeEach
+	void setup() throws IOException {
+		Path site = this.temp.resolve("site");
+		createFile(site.resolve("com/example/one/Ambiguous.html"), "");
+		createFile(site.resolve("com/example/two/Ambiguous.html"), "");
+		createFile(site.resolve("com/example/Resolved.html"), "");
+		createFile(this.temp.resolve("antora.yml"), "name: test\n");
+		this.source = this.temp.resolve("modules");
+	}
+
+	@Test
+	void batchRunWithAmbiguousNameLeavesEveryFileUnchanged() throws IOException {
+		Path resolved = createFile(this.source.resolve("a.adoc"), "Use `Resolved` here.\n");
+		Path ambiguous = createFile(this.source.resolve("b.adoc"), "Use `Ambiguous` here.\n");
+		assertThatIllegalStateException().isThrownBy(() -> Main.main(arguments("--batch-commit")))
+			.withMessageContaining("Fix the ambiguous names");
+		assertThat(Files.readString(resolved)).isEqualTo("Use `Resolved` here.\n");
+		assertThat(Files.readString(ambiguous)).isEqualTo("Use `Ambiguous` here.\n");
+	}
+
+	@Test
+	void batchRunCommitsChanges() throws Exception {
+		Path resolved = createFile(this.source.resolve("a.adoc"), "Use `Resolved` here.\n");
+		Main.main(arguments("--batch-commit"));
+		assertThat(Files.readString(resolved)).isEqualTo("Use javadoc:com.example.Resolved[] here.\n");
+	}
+
+	@Test
+	void runUsesFreshSnapshot() throws Exception {
+		Path file = createFile(this.source.resolve("a.adoc"), "Use `Resolved` here.\n");
+		writeSnapshot();
+		Main.main(snapshotArguments());
+		assertThat(Files.readString(file)).isEqualTo("Use javadoc:com.example.snapshot.Resolved[] here.\n");
+	}
+
+	@Test
+	void runWithRefreshCacheIgnoresSnapshot() throws Exception {
+		Path file = createFile(this.source.resolve("a.adoc"), "Use `Resolved` here.\n");
+		writeSnapshot();
+		Main.main(snapshotArguments("--refresh-cache"));
+		assertThat(Files.readString(file)).isEqualTo("Use javadoc:com.example.Resolved[] here.\n");
+	}
+
+	@Test
+	void runWithCacheMaxAgeIgnoresOlderSnapshot() throws Exception {
+		Path file = createFile(this.source.resolve("a.adoc"), "Use `Resolved` here.\n");
+		Path snapshot = writeSnapshot();
+		Files.setLastModifiedTime(snapshot, FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+		Main.main(snapshotArguments("--cache-max-age=PT1H"));
+		assertThat(Files.readString(file)).isEqualTo("Use javadoc:com.example.Resolved[] here.\n");
+	}
+
+	@Test
+	void requestReportsItsAmbiguousNames() {
+		LookupTable table = new LookupTable();
+		table.add("Ambiguous", "com.example.one.Ambiguous");
+		table.add("Ambiguous", "com.example.two.Ambiguous");
+		table.add("Resolved", "com.example.Resolved");
+		Main main = Main.forRequests(new JavadocSite(table));
+		Set<String> lookups = new HashSet<>();
+		assertThat(main.replace("Use `Ambiguous` and `Resolved`.\n", lookups))
+			.isEqualTo("Use `Ambiguous` and javadoc:com.example.Resolved[].\n");
+		assertThat(main.getAmbiguousNames(lookups)).containsEntry("Ambiguous",
+				List.of("com.example.one.Ambiguous", "com.example.two.Ambiguous"))
+			.hasSize(1);
+		Set<String> otherLookups = new HashSet<>();
+		main.replace("Use `Resolved`.\n", otherLookups);
+		assertThat(main.getAmbiguousNames(otherLookups)).isEmpty();
+	}
+
+	@Test
+	void mergeReportsReportsMissingShardsTogetherWithAmbiguousNames() throws IOException {
+		Path report = this.temp.resolve("report-1.json");
+		new MigrationReport(new Shard(1, 3, Shard.Strategy.HASH), 1, List.of(), Map.of(),
+				Map.of("Ambiguous", List.of("com.example.one.Ambiguous", "com.example.two.Ambiguous")), List.of())
+			.write(report);
+		assertThatIllegalStateException().isThrownBy(() -> Main.main(new String[] { "--merge-reports=" + report }))
+			.withMessageContaining("Missing report(s) for shard(s) [2, 3] of 3")
+			.withMessageContaining("Fix the ambiguous names");
+	}
+
+	/**
+	 * Write a snapshot for the test site that resolves {@code Resolved} to a different
+	 * package, so that its use can be told apart from building the site.
+	 */
+	private Path writeSnapshot() throws IOException {
+		Path snapshot = this.temp.resolve("lookup.snapshot");
+		LookupTable table = new LookupTable();
+		table.add("Resolved", "com.example.snapshot.Resolved");
+		byte[] fingerprint = LookupSnapshot.fingerprint(Files.readAllLines(this.temp.resolve("antora.yml")),
+				this.temp.resolve("site"), false);
+		new LookupSnapshot(snapshot).write(fingerprint, table);
+		return snapshot;
+	}
+
+	private String[] snapshotArguments(String... extra) {
+		String[] arguments = arguments(extra);
+		for (int i = 0; i < arguments.length; i++) {
+			if (arguments[i].equals("--snapshot=none")) {
+				arguments[i] = "--snapshot=" + this.temp.resolve("lookup.snapshot");
+			}
+		}
+		return arguments;
+	}
+
+	private String[] arguments(String... extra) {
+		String[] common = { "--javadoc-site=" + this.temp.resolve("site"), "--antora-source=" + this.source,
+				"--antora-yml=" + this.temp.resolve("antora.yml"), "--snapshot=none", "--migration-threads=1" };
+		String[] arguments = new String[common.length + extra.length];
+		System.arraycopy(common, 0, arguments, 0, common.length);
+		System.arraycopy(extra, 0, arguments, common.length, extra.length);
+		return arguments;
+	}
+
+	private Path createFile(Path path, String content) throws IOException {
+		Files.createDirectories(path.getParent());
+		return Files.writeString(path, content);
+	}
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+/**
+ * Tests for {@link MappedLookupIndex}.
+ */
+class MappedLookupIndexTests {
+
+	private static final List<String> KEYS = List.of("Bean", "BeanFactory", "Caf\u00e9", "Check\u2713", "Z",
+			"\uff21", "\ud835\udc9c", "\ud835\udc9cBean", "com.example.Bean");
+
+	@TempDir
+	Path temp;
+
+	@Test
+	void getReturnsSameTargetsAsLookupTable() throws IOException {
+		LookupTable table = createTable();
+		MappedLookupIndex index = writeAndOpen(table);
+		assertThat(index.size()).isEqualTo(table.size());
+		for (String key : KEYS) {
+			assertThat(index.get(key)).isEqualTo(table.get(key));
+		}
+	}
+
+	@Test
+	void getOfAmbiguousKeyReturnsTargetsInOrder() throws IOException {
+		MappedLookupIndex index = writeAndOpen(createTable());
+		assertThat(index.get("Bean")).containsExactly("com.example.Bean", "com.example.other.Bean",
+				"org.example.Bean");
+		assertThat(index.get("\ud835\udc9c")).containsExactly("com.example.\ud835\udc9c", "org.example.\ud835\udc9c");
+	}
+
+	@Test
+	void getOfRegionReturnsTargets() throws IOException {
+		MappedLookupIndex index = writeAndOpen(createTable());
+		String source = "Use `Caf\u00e9` and `\ud835\udc9cBean` here";
+		assertThat(index.get(source, 5, 9)).containsExactly("com.example.Caf\u00e9");
+		assertThat(index.get(source, 16, 22)).containsExactly("com.example.\ud835\udc9cBean");
+	}
+
+	@Test
+	void getOfMissingKeyReturnsNull() throws IOException {
+		MappedLookupIndex index = writeAndOpen(createTable());
+		assertThat(index.get("A")).isNull();
+		assertThat(index.get("")).isNull();
+		assertThat(index.get("Bea")).isNull();
+		assertThat(index.get("Beans")).isNull();
+		assertThat(index.get("Cafe")).isNull();
+		assertThat(index.get("\ud835\udc9d")).isNull();
+		assertThat(index.get("\ud835")).isNull();
+		assertThat(index.get("\udbff\udfff")).isNull();
+		assertThat(index.get("zzz")).isNull();
+	}
+
+	@Test
+	void getFromEmptyIndexReturnsNull() throws IOException {
+		MappedLookupIndex index = writeAndOpen(new LookupTable());
+		assertThat(index.size()).isEqualTo(0);
+		assertThat(index.get("Bean")).isNull();
+	}
+
+	@Test
+	void openOfTruncatedIndexFails() throws IOException {
+		Path path = this.temp.resolve("lookup.index");
+		MappedLookupIndex.write(path, createTable());
+		byte[] content = Files.readAllBytes(path);
+		Files.write(path, Arrays.copyOf(content, content.length - 1));
+		assertThatExceptionOfType(IOException.class).isThrownBy(() -> MappedLookupIndex.open(path))
+			.withMessageContaining("truncated");
+	}
+
+	/**
+	 * Create a table whose keys are added in an order that differs from code point
+	 * order, including keys outside the Basic Multilingual Plane that sort after
+	 * U+FF21 by code point but before it by UTF-16 code unit.
+	 */
+	private LookupTable createTable() {
+		List<String> keys = new ArrayList<>(KEYS);
+		Collections.reverse(keys);
+		LookupTable table = new LookupTable();
+		for (String key : keys) {
+			table.add(key, "com.example." + key);
+		}
+		table.add("Bean", "com.example.other.Bean");
+		table.add("Bean", "org.example.Bean");
+		table.add("\ud835\udc9c", "org.example.\ud835\udc9c");
+		return table;
+	}
+
+	private MappedLookupIndex writeAndOpen(LookupTable table) throws IOException {
+		Path path = this.temp.resolve("lookup.index");
+		MappedLookupIndex.write(path, table);
+		return MappedLookupIndex.open(path);
+	}
+
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link Metrics}.
+ */
+class MetricsTests {
+
+	@Test
+	void recordSlowestKeepsSlowestItemsSlowestFirst() {
+		Metrics metrics = Metrics.get();
+		for (int i = 1; i <= 25; i++) {
+			metrics.recordSlowest("test.slowest", "item-" + i, (i % 5) * 1_000_000L + i);
+		}
+		List<Metrics.ItemSummary> slowest = metrics.summary().slowest().get("test.slowest");
+		assertThat(slowest.stream().map(Metrics.ItemSummary::item).toList()).containsExactly("item-24", "item-19",
+				"item-14", "item-9", "item-4", "item-23", "item-18", "item-13", "item-8", "item-3");
+		assertThat(slowest.get(0).millis()).isGreaterThan(slowest.get(9).millis());
+	}
+
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests for {@link MigrationManifest}.
+ */
+class MigrationManifestTests {
+
+	private static final String FINGERPRINT = "one";
+
+	@TempDir
+	Path temp;
+
+	@Test
+	void unchangedFileIsSkipped() throws IOException {
+		Path file = createFile("a.adoc", "Use `Later` here.\n");
+		migrate(site(), FINGERPRINT, file);
+		Main main = main(site("Later"), load(FINGERPRINT));
+		assertThat(main.migrate(file)).isFalse();
+		assertThat(Files.readString(file)).isEqualTo("Use `Later` here.\n");
+	}
+
+	@Test
+	void changedFingerprintInvalidatesEveryEntryWhoseLookupsChanged() throws IOException {
+		Path first = createFile("a.adoc", "Use `Later` here.\n");
+		Path second = createFile("b.adoc", "Use `Other` here.\n");
+		migrate(site(), FINGERPRINT, first, second);
+		MigrationManifest manifest = load("two");
+		JavadocSite site = site("Later", "Other");
+		assertThat(manifest.isUnchanged(first, MigrationManifest.hash(first), site)).isFalse();
+		assertThat(manifest.isUnchanged(second, MigrationManifest.hash(second), site)).isFalse();
+		Main main = main(site, manifest);
+		assertThat(main.migrate(first)).isTrue();
+		assertThat(main.migrate(second)).isTrue();
+		assertThat(Files.readString(first)).isEqualTo("Use javadoc:com.example.Later[] here.\n");
+		assertThat(Files.readString(second)).isEqualTo("Use javadoc:com.example.Other[] here.\n");
+	}
+
+	@Test
+	void changedFingerprintKeepsEntryWhoseLookupsAreUnchanged() throws IOException {
+		Path file = createFile("a.adoc", "Use `Later` here.\n");
+		migrate(site("Other"), FINGERPRINT, file);
+		MigrationManifest manifest = load("two");
+		assertThat(manifest.isUnchanged(file, MigrationManifest.hash(file), site())).isTrue();
+	}
+
+	@Test
+	void fileWithChangedContentIsMigratedAgain() throws IOException {
+		Path file = createFile("a.adoc", "Use `Later` here.\n");
+		migrate(site("Resolved"), FINGERPRINT, file);
+		Files.writeString(file, "Use `Resolved` here.\n");
+		Main main = main(site("Resolved"), load(FINGERPRINT));
+		assertThat(main.migrate(file)).isTrue();
+		assertThat(Files.readString(file)).isEqualTo("Use javadoc:com.example.Resolved[] here.\n");
+	}
+
+	@Test
+	void fileMigratedWithIncompleteSiteIsNotRecorded() throws IOException {
+		Path file = createFile("a.adoc", "Use `Later` here.\n");
+		JavadocSite site = incompleteSite();
+		assertThat(site.isComplete()).isFalse();
+		migrate(site, FINGERPRINT, file);
+		MigrationManifest manifest = load(FINGERPRINT);
+		assertThat(manifest.isUnchanged(file, MigrationManifest.hash(file), site())).isFalse();
+	}
+
+	@Test
+	void deletedFileIsDroppedWhenSaved() throws IOException {
+		Path file = createFile("a.adoc", "Use `Later` here.\n");
+		String hash = MigrationManifest.hash(file);
+		migrate(site(), FINGERPRINT, file);
+		Files.delete(file);
+		load(FINGERPRINT).save();
+		Files.writeString(file, "Use `Later` here.\n");
+		assertThat(load(FINGERPRINT).isUnchanged(file, hash, site())).isFalse();
+	}
+
+	private void migrate(JavadocSite site, String fingerprint, Path... files) throws IOException {
+		MigrationManifest manifest = load(fingerprint);
+		Main main = main(site, manifest);
+		for (Path file : files) {
+			main.migrate(file);
+		}
+		manifest.save();
+	}
+
+	private Main main(JavadocSite site, MigrationManifest manifest) {
+		return new Main(site, 1, manifest, 1024 * 1024);
+	}
+
+	private MigrationManifest load(String fingerprint) throws IOException {
+		return MigrationManifest.load(this.temp.resolve("build/manifest.json"), fingerprint);
+	}
+
+	private JavadocSite site(String... names) {
+		LookupTable table = new LookupTable();
+		for (String name : names) {
+			table.add(name, "com.example." + name);
+		}
+		return new JavadocSite(table);
+	}
+
+	/**
+	 * Create a site with a remote source on a port that nothing is listening on, so
+	 * that it cannot be indexed.
+	 */
+	private JavadocSite incompleteSite() throws IOException {
+		int port;
+		try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+			port = socket.getLocalPort();
+		}
+		JavadocFetcher.Policy policy = new JavadocFetcher.Policy(Duration.ofSeconds(2), Duration.ofSeconds(2), 0,
+				Duration.ofMillis(10), Duration.ofMillis(10), 3, Duration.ofSeconds(1));
+		HttpCache cache = new HttpCache(this.temp.resolve("cache"), null, Duration.ofDays(1), 1 << 20);
+		return new JavadocSite(List.of("    url-down-javadoc: http://127.0.0.1:" + port + "/down"),
+				Files.createDirectories(this.temp.resolve("site")), new JavadocFetcher(cache, 1, 1, policy));
+	}
+
+	private Path createFile(String name, String content) throws IOException {
+		return Files.writeString(this.temp.resolve(name), content);
+	}
+
+}
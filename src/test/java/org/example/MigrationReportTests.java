@@ -0,0 +1,107 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+/**
+ * Tests for {@link MigrationReport}.
+ */
+class MigrationReportTests {
+
+	@TempDir
+	Path temp;
+
+	@Test
+	void readReturnsWrittenReport() throws IOException {
+		MigrationReport report = report(1, 3, List.of("b.adoc", "a.adoc"), Map.of("Unknown", 2L),
+				Map.of("Ambiguous", List.of("com.example.one.Ambiguous", "com.example.two.Ambiguous")));
+		Path path = this.temp.resolve("reports/report-1.json");
+		report.write(path);
+		MigrationReport read = MigrationReport.read(path);
+		assertThat(read).isEqualTo(report);
+		assertThat(read.changed()).containsExactly("a.adoc", "b.adoc");
+	}
+
+	@Test
+	void mergeCombinesReports() {
+		MigrationReport merged = MigrationReport.merge(List.of(
+				report(2, 2, List.of("b.adoc"), Map.of("Unknown", 2L, "Other", 1L), Map.of()),
+				report(1, 2, List.of("a.adoc"), Map.of("Unknown", 3L),
+						Map.of("Ambiguous", List.of("com.example.one.Ambiguous", "com.example.two.Ambiguous")))));
+		assertThat(merged.shards()).containsExactly(1, 2);
+		assertThat(merged.files()).isEqualTo(20);
+		assertThat(merged.changed()).containsExactly("a.adoc", "b.adoc");
+		assertThat(merged.unknown()).containsEntry("Unknown", 5L).containsEntry("Other", 1L).hasSize(2);
+		assertThat(merged.ambiguous()).containsKey("Ambiguous").hasSize(1);
+		assertThat(merged.missingShards()).isEmpty();
+	}
+
+	@Test
+	void mergeWithMissingShardsReportsThem() {
+		MigrationReport merged = MigrationReport
+			.merge(List.of(report(2, 4, List.of(), Map.of(), Map.of()), report(4, 4, List.of(), Map.of(), Map.of())));
+		assertThat(merged.missingShards()).containsExactly(1, 3);
+	}
+
+	@Test
+	void mergeWithDuplicateShardFails() {
+		List<MigrationReport> reports = List.of(report(1, 2, List.of(), Map.of(), Map.of()),
+				report(1, 2, List.of(), Map.of(), Map.of()));
+		assertThatIllegalStateException().isThrownBy(() -> MigrationReport.merge(reports))
+			.withMessageContaining("Shard 1/2 is included in more than one report");
+	}
+
+	@Test
+	void mergeWithMismatchedShardCountsFails() {
+		List<MigrationReport> reports = List.of(report(1, 2, List.of(), Map.of(), Map.of()),
+				report(2, 3, List.of(), Map.of(), Map.of()));
+		assertThatIllegalStateException().isThrownBy(() -> MigrationReport.merge(reports))
+			.withMessageContaining("cannot be merged");
+	}
+
+	@Test
+	void mergeWithMismatchedStrategiesFails() {
+		List<MigrationReport> reports = List.of(report(1, 2, List.of(), Map.of(), Map.of()),
+				new MigrationReport(new Shard(2, 2, Shard.Strategy.SIZE), 10, List.of(), Map.of(), Map.of(),
+						List.of()));
+		assertThatIllegalStateException().isThrownBy(() -> MigrationReport.merge(reports))
+			.withMessageContaining("cannot be merged");
+	}
+
+	@Test
+	void mergeOfNoReportsFails() {
+		assertThatIllegalStateException().isThrownBy(() -> MigrationReport.merge(List.of()))
+			.withMessageContaining("No reports to merge");
+	}
+
+	private MigrationReport report(int index, int count, List<String> changed, Map<String, Long> unknown,
+			Map<String, List<String>> ambiguous) {
+		return new MigrationReport(new Shard(index, count, Shard.Strategy.HASH), 10, changed, unknown, ambiguous,
+				List.of());
+	}
+
+}
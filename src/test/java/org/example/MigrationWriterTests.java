@@ -0,0 +1,154 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests for {@link MigrationWriter}.
+ */
+class MigrationWriterTests {
+
+	@TempDir
+	Path temp;
+
+	@Test
+	void immediateWriteReplacesContent() throws IOException {
+		Path file = createFile("a.adoc", "original");
+		MigrationWriter writer = MigrationWriter.immediate();
+		writer.write(file, "original", "migrated");
+		assertThat(Files.readString(file)).isEqualTo("migrated");
+		assertThat(writer.isWritten()).isTrue();
+		assertThat(tempFiles()).isEmpty();
+	}
+
+	@Test
+	void immediateWriteKeepsPermissions() throws IOException {
+		assumePosix();
+		Path file = createFile("a.adoc", "original");
+		Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-rw-r--"));
+		MigrationWriter.immediate().write(file, "original", "migrated");
+		assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(file))).isEqualTo("rw-rw-r--");
+	}
+
+	@Test
+	void writeOfTempFileKeepsPermissions() throws IOException {
+		assumePosix();
+		Path file = createFile("a.adoc", "original");
+		Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-r--r--"));
+		MigrationWriter writer = MigrationWriter.immediate();
+		Path migrated = writer.createTempFile(file);
+		Files.writeString(migrated, "migrated");
+		writer.write(file, migrated);
+		assertThat(Files.readString(file)).isEqualTo("migrated");
+		assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(file))).isEqualTo("rw-r--r--");
+	}
+
+	@Test
+	void writeOfReadOnlyFileKeepsPermissions() throws IOException {
+		assumePosix();
+		Path file = createFile("a.adoc", "original");
+		Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("r--r--r--"));
+		MigrationWriter.immediate().write(file, "original", "migrated");
+		assertThat(Files.readString(file)).isEqualTo("migrated");
+		assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(file))).isEqualTo("r--r--r--");
+	}
+
+	@Test
+	void batchWriteKeepsPermissionsAndOnlyWritesOnCommit() throws IOException {
+		assumePosix();
+		Path file = createFile("a.adoc", "original");
+		Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-r-----"));
+		MigrationWriter writer = new MigrationWriter(MigrationWriter.Mode.BATCH, this.temp, null);
+		writer.write(file, "original", "migrated");
+		assertThat(Files.readString(file)).isEqualTo("original");
+		assertThat(writer.isWritten()).isFalse();
+		writer.commit();
+		assertThat(Files.readString(file)).isEqualTo("migrated");
+		assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(file))).isEqualTo("rw-r-----");
+		assertThat(writer.isWritten()).isTrue();
+	}
+
+	@Test
+	void abortDeletesStagedFiles() throws IOException {
+		Path file = createFile("a.adoc", "original");
+		MigrationWriter writer = new MigrationWriter(MigrationWriter.Mode.BATCH, this.temp, null);
+		writer.write(file, "original", "migrated");
+		writer.abort();
+		assertThat(Files.readString(file)).isEqualTo("original");
+		assertThat(tempFiles()).isEmpty();
+	}
+
+	@Test
+	void dryRunWritesDiffAndLeavesFile() throws IOException {
+		Path file = createFile("a.adoc", "one\ntwo\n");
+		ByteArrayOutputStream diff = new ByteArrayOutputStream();
+		MigrationWriter writer = new MigrationWriter(MigrationWriter.Mode.DRY_RUN, this.temp,
+				new PrintStream(diff, true, StandardCharsets.UTF_8));
+		writer.write(file, "one\ntwo\n", "one\n2\n");
+		assertThat(Files.readString(file)).isEqualTo("one\ntwo\n");
+		assertThat(diff.toString(StandardCharsets.UTF_8))
+			.isEqualTo("--- a/a.adoc\n+++ b/a.adoc\n@@ -1,2 +1,2 @@\n one\n-two\n+2\n");
+		assertThat(writer.isWritten()).isFalse();
+	}
+
+	@Test
+	void dryRunOfTempFileDecodesMalformedInputAndDeletesTempFile() throws IOException {
+		Path file = Files.write(this.temp.resolve("a.adoc"), new byte[] { 'o', 'n', 'e', '\n', (byte) 0xFF, '\n' });
+		ByteArrayOutputStream diff = new ByteArrayOutputStream();
+		MigrationWriter writer = new MigrationWriter(MigrationWriter.Mode.DRY_RUN, this.temp,
+				new PrintStream(diff, true, StandardCharsets.UTF_8));
+		Path migrated = writer.createTempFile(file);
+		Files.writeString(migrated, "one\n\uFFFD\ntwo\n");
+		writer.write(file, migrated);
+		assertThat(Files.readAllBytes(file)).isEqualTo(new byte[] { 'o', 'n', 'e', '\n', (byte) 0xFF, '\n' });
+		assertThat(diff.toString(StandardCharsets.UTF_8))
+			.isEqualTo("--- a/a.adoc\n+++ b/a.adoc\n@@ -1,2 +1,3 @@\n one\n \uFFFD\n+two\n");
+		assertThat(tempFiles()).isEmpty();
+		assertThat(writer.isWritten()).isFalse();
+	}
+
+	private Path createFile(String name, String content) throws IOException {
+		return Files.writeString(this.temp.resolve(name), content);
+	}
+
+	private List<Path> tempFiles() throws IOException {
+		try (Stream<Path> files = Files.list(this.temp)) {
+			return files.filter((file) -> file.toString().endsWith(".tmp")).toList();
+		}
+	}
+
+	private static void assumePosix() {
+		assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+	}
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link Options}.
+ */
+class OptionsTests {
+
+	@Test
+	void parseReadsKnownOptions() {
+		Options options = Options.parse(new String[] { "--dry-run", "--migration-threads=3" });
+		assertThat(options.getWriteMode()).isEqualTo(MigrationWriter.Mode.DRY_RUN);
+		assertThat(options.getMigrationThreads()).isEqualTo(3);
+	}
+
+	@Test
+	void parseWhenOptionIsUnknownThrowsException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> Options.parse(new String[] { "--dryrun" }))
+			.withMessageContaining("Unknown option '--dryrun'");
+	}
+
+	@Test
+	void getDiffOutputPathWhenNotDryRunThrowsException() {
+		Options options = Options.parse(new String[] { "--diff-output=changes.patch" });
+		assertThatIllegalArgumentException().isThrownBy(options::getDiffOutputPath)
+			.withMessageContaining("'--diff-output' can only be used with '--dry-run'");
+	}
+
+	@Test
+	void parseWhenArgumentIsNotAnOptionThrowsException() {
+		assertThatIllegalArgumentException().isThrownBy(() -> Options.parse(new String[] { "dry-run" }))
+			.withMessageContaining("Unexpected argument 'dry-run'");
+	}
+
+}
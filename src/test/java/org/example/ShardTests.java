@@ -0,0 +1,187 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+/**
+ * Tests for {@link Shard}.
+ */
+class ShardTests {
+
+	@TempDir
+	Path temp;
+
+	@Test
+	void parseReturnsShard() {
+		Shard shard = Shard.parse("2/3", Shard.Strategy.SIZE);
+		assertThat(shard.index()).isEqualTo(2);
+		assertThat(shard.count()).isEqualTo(3);
+		assertThat(shard.strategy()).isEqualTo(Shard.Strategy.SIZE);
+	}
+
+	@Test
+	void parseOfInvalidValueFails() {
+		for (String value : List.of("0/2", "3/2", "1/0", "1", "/2", "a/b")) {
+			assertThatIllegalArgumentException().isThrownBy(() -> Shard.parse(value, Shard.Strategy.HASH))
+				.withMessageContaining("i/n");
+		}
+	}
+
+	@Test
+	void selectByHashPartitionsFiles() throws IOException {
+		Path base = this.temp.resolve("one");
+		List<Path> paths = paths(base, 100);
+		assertPartition(paths, select(base, paths, 3, Shard.Strategy.HASH));
+	}
+
+	@Test
+	void selectByHashDependsOnlyOnRelativeNames() throws IOException {
+		Path base = this.temp.resolve("one");
+		Path otherBase = this.temp.resolve("other/checkout");
+		List<Path> paths = paths(base, 100);
+		List<Path> otherPaths = new ArrayList<>(paths(otherBase, 100));
+		Collections.reverse(otherPaths);
+		for (int index = 1; index <= 3; index++) {
+			Shard shard = new Shard(index, 3, Shard.Strategy.HASH);
+			assertThat(names(base, shard.select(base, paths)))
+				.isEqualTo(new HashSet<>(names(otherBase, shard.select(otherBase, otherPaths))));
+		}
+	}
+
+	@Test
+	void selectByHashKeepsFileInShardWhenOtherFilesAreAdded() throws IOException {
+		Path base = this.temp.resolve("one");
+		List<Path> paths = paths(base, 50);
+		List<Path> morePaths = paths(base, 100);
+		for (int index = 1; index <= 3; index++) {
+			Shard shard = new Shard(index, 3, Shard.Strategy.HASH);
+			List<Path> selected = shard.select(base, morePaths);
+			for (Path path : shard.select(base, paths)) {
+				assertThat(selected.contains(path)).isTrue();
+			}
+		}
+	}
+
+	@Test
+	void selectBySizeBalancesTotalSize() throws IOException {
+		Path base = this.temp.resolve("one");
+		List<Path> paths = new ArrayList<>();
+		long largest = 0;
+		for (int i = 0; i < 40; i++) {
+			int size = (i * 7919) % 5000 + 1;
+			paths.add(createFile(base.resolve("modules/file-" + i + ".adoc"), size));
+			largest = Math.max(largest, size);
+		}
+		List<List<Path>> shards = select(base, paths, 4, Shard.Strategy.SIZE);
+		assertPartition(paths, shards);
+		long min = Long.MAX_VALUE;
+		long max = 0;
+		for (List<Path> shard : shards) {
+			long total = 0;
+			for (Path path : shard) {
+				total += Files.size(path);
+			}
+			min = Math.min(min, total);
+			max = Math.max(max, total);
+		}
+		assertThat(max - min).isLessThanOrEqualTo(largest);
+	}
+
+	@Test
+	void selectBySizeDoesNotDependOnOrderOfFiles() throws IOException {
+		Path base = this.temp.resolve("one");
+		List<Path> paths = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			paths.add(createFile(base.resolve("modules/file-" + i + ".adoc"), 100 * (i % 5) + 1));
+		}
+		List<Path> reversed = new ArrayList<>(paths);
+		Collections.reverse(reversed);
+		for (int index = 1; index <= 3; index++) {
+			Shard shard = new Shard(index, 3, Shard.Strategy.SIZE);
+			assertThat(shard.select(base, reversed)).isEqualTo(shard.select(base, paths));
+		}
+	}
+
+	@Test
+	void selectWithSingleShardReturnsAllFiles() throws IOException {
+		Path base = this.temp.resolve("one");
+		List<Path> paths = paths(base, 10);
+		assertThat(Shard.ALL.select(base, paths)).isEqualTo(paths);
+	}
+
+	@Test
+	void relativeNameUsesForwardSlashes() {
+		Path base = this.temp.resolve("one");
+		assertThat(Shard.relativeName(base, base.resolve("modules/ROOT/pages/index.adoc")))
+			.isEqualTo("modules/ROOT/pages/index.adoc");
+	}
+
+	private List<List<Path>> select(Path base, List<Path> paths, int count, Shard.Strategy strategy)
+			throws IOException {
+		List<List<Path>> shards = new ArrayList<>();
+		for (int index = 1; index <= count; index++) {
+			shards.add(new Shard(index, count, strategy).select(base, paths));
+		}
+		return shards;
+	}
+
+	private void assertPartition(List<Path> paths, List<List<Path>> shards) {
+		List<Path> all = new ArrayList<>();
+		for (List<Path> shard : shards) {
+			assertThat(shard).isNotEmpty();
+			all.addAll(shard);
+		}
+		assertThat(all).hasSize(paths.size());
+		assertThat(new HashSet<>(all)).isEqualTo(new HashSet<>(paths));
+	}
+
+	private List<Path> paths(Path base, int count) {
+		List<Path> paths = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			paths.add(base.resolve("modules/ROOT/pages/page-" + i + ".adoc"));
+		}
+		return paths;
+	}
+
+	private Set<String> names(Path base, List<Path> paths) {
+		Set<String> names = new HashSet<>();
+		for (Path path : paths) {
+			names.add(Shard.relativeName(base, path));
+		}
+		return names;
+	}
+
+	private Path createFile(Path path, int size) throws IOException {
+		Files.createDirectories(path.getParent());
+		return Files.write(path, new byte[size]);
+	}
+
+}